@@ -0,0 +1,41 @@
+package org.jobrad.backend;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.function.BiFunction;
+
+/**
+ * In-memory stand-ins for the collaborators benchmarks do not measure. Repositories and sessions
+ * are interface proxies answering only the calls the benchmarked code makes; Spring's field
+ * injection is replaced by setting the field directly.
+ */
+public final class StandIns {
+
+    private StandIns() {
+    }
+
+    /**
+     * A proxy for {@code type} that answers every call with {@code behaviour.apply(methodName, args)}.
+     */
+    public static <T> T proxy(Class<T> type, BiFunction<String, Object[], Object> behaviour) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) ->
+                switch (method.getName()) {
+                    case "equals" -> self == args[0];
+                    case "hashCode" -> System.identityHashCode(self);
+                    case "toString" -> type.getSimpleName() + " stand-in";
+                    default -> behaviour.apply(method.getName(), args);
+                });
+        return type.cast(proxy);
+    }
+
+    public static void inject(Object target, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException(target.getClass().getSimpleName() + " has no field " + fieldName);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
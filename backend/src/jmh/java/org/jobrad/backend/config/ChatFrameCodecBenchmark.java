@@ -0,0 +1,75 @@
+package org.jobrad.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.jobrad.backend.entity.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One inbound chat message through the raw handler: parse, stamp, and produce the recipient and
+ * sender frames. Run with {@code gradle jmh}; the gc profiler reports bytes allocated per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatFrameCodecBenchmark {
+
+    private static final String PAYLOAD = "{\"content\":\"Hello, I have a question about my bike lease\","
+            + "\"recipient\":\"agent1\",\"sender\":\"Guest_1234\",\"senderType\":\"GUEST\"}";
+
+    // The previous handler's mapper, plus the time module it needed to serialize timestamps at all
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final ChatFrameCodec codec = new ChatFrameCodec();
+    private final UUID conversationId = UUID.randomUUID();
+
+    @Benchmark
+    public void objectMapperTwoPassTwoEncodes(Blackhole blackhole) throws IOException {
+        Map<?, ?> data = objectMapper.readValue(PAYLOAD, Map.class);
+        if (!"subscribe".equals(data.get("type"))) {
+            Message message = objectMapper.readValue(PAYLOAD, Message.class);
+            stamp(message);
+            blackhole.consume(new TextMessage(objectMapper.writeValueAsString(message)));
+            blackhole.consume(new TextMessage(objectMapper.writeValueAsString(message)));
+        }
+    }
+
+    @Benchmark
+    public void codecSinglePassEncodeOnce(Blackhole blackhole) throws IOException {
+        ChatFrameCodec.Frame frame = codec.decode(PAYLOAD);
+        if (!frame.isSubscribe()) {
+            Message message = frame.message();
+            stamp(message);
+            TextMessage encoded = codec.encode(message);
+            blackhole.consume(encoded);
+            blackhole.consume(encoded);
+        }
+    }
+
+    private void stamp(Message message) {
+        message.setId(1L);
+        message.setTimestamp(LocalDateTime.now());
+        message.setConversationId(conversationId);
+    }
+}
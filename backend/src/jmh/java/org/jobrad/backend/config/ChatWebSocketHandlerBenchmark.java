@@ -0,0 +1,148 @@
+package org.jobrad.backend.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jobrad.backend.StandIns;
+import org.jobrad.backend.cluster.ClusterRouter;
+import org.jobrad.backend.cluster.InMemoryPresenceRegistry;
+import org.jobrad.backend.cluster.LoopbackClusterTransport;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.jobrad.backend.ratelimit.RateLimiter;
+import org.jobrad.backend.repository.ConversationRepository;
+import org.jobrad.backend.service.AgentAssignmentServiceImpl;
+import org.jobrad.backend.service.ChatPipeline;
+import org.jobrad.backend.service.ConversationBindings;
+import org.jobrad.backend.service.ConversationReaper;
+import org.jobrad.backend.service.InMemoryAssignmentStore;
+import org.jobrad.backend.service.MessageIdGenerator;
+import org.jobrad.backend.service.MessageService;
+import org.jobrad.backend.service.WaitingQueuePolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A guest's chat message through the raw handler and the chat pipeline: parse, conversation lookup,
+ * encode, and hand-off to the recipient's and sender's outbound queues on both transports. Sessions
+ * discard what they are sent, the broker channel accepts and drops, and persistence is stubbed out,
+ * so this measures the shared hot path itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatWebSocketHandlerBenchmark {
+
+    private static final TextMessage CHAT = new TextMessage("{\"content\":\"Hello, I have a question about my bike lease\","
+            + "\"recipient\":\"agent1\",\"sender\":\"Guest_1\",\"senderType\":\"GUEST\"}");
+
+    private ChatWebSocketHandler handler;
+    private OutboundDelivery outboundDelivery;
+    private WebSocketSession guestSession;
+
+    @Setup
+    public void setUp() throws Exception {
+        ChatMetrics metrics = new ChatMetrics(new SimpleMeterRegistry());
+        AgentAssignmentServiceImpl assignments = new AgentAssignmentServiceImpl(3, new InMemoryAssignmentStore(),
+                new WaitingQueuePolicy(Duration.ofMinutes(2), Duration.ofMinutes(5), 200, Duration.ofMinutes(2)));
+        StandIns.inject(assignments, "messagingTemplate", new SimpMessagingTemplate((message, timeout) -> true));
+        StandIns.inject(assignments, "conversationRepository", StandIns.proxy(ConversationRepository.class,
+                (method, args) -> "save".equals(method) ? args[0] : null));
+        StandIns.inject(assignments, "eventPublisher", (ApplicationEventPublisher) event -> {
+        });
+        StandIns.inject(assignments, "chatMetrics", metrics);
+        assignments.assignAgent("Guest_1", UserRole.GUEST);
+        ConversationBindings conversationBindings = new ConversationBindings(Duration.ofSeconds(30));
+        StandIns.inject(conversationBindings, "agentAssignmentService", assignments);
+
+        outboundDelivery = new OutboundDelivery(Duration.ofSeconds(5), DataSize.ofMegabytes(64),
+                OutboundSession.OverflowPolicy.DROP, 2, false, metrics);
+        WebSocketSessionRegistry sessionRegistry = new WebSocketSessionRegistry(Duration.ofMinutes(10));
+        ChatFrameCodec codec = new ChatFrameCodec();
+        MessageChannel brokerChannel = (message, timeout) -> true;
+        RawChatTransport raw = new RawChatTransport();
+        StandIns.inject(raw, "sessionRegistry", sessionRegistry);
+        StandIns.inject(raw, "outboundDelivery", outboundDelivery);
+        StompChatTransport stomp = new StompChatTransport();
+        StandIns.inject(stomp, "brokerChannel", brokerChannel);
+        ClusterRouter clusterRouter = new ClusterRouter("node-0", new InMemoryPresenceRegistry(),
+                new LoopbackClusterTransport(), List.of(raw, stomp), codec, brokerChannel);
+        ConversationReaper conversationReaper = new ConversationReaper(Duration.ofMinutes(15), Duration.ofSeconds(90));
+
+        ChatPipeline pipeline = new ChatPipeline();
+        StandIns.inject(pipeline, "messageIdGenerator", new MessageIdGenerator(0));
+        StandIns.inject(pipeline, "conversationBindings", conversationBindings);
+        StandIns.inject(pipeline, "conversationReaper", conversationReaper);
+        StandIns.inject(pipeline, "frameCodec", codec);
+        StandIns.inject(pipeline, "clusterRouter", clusterRouter);
+        StandIns.inject(pipeline, "messageService", StandIns.proxy(MessageService.class, (method, args) -> null));
+        StandIns.inject(pipeline, "chatMetrics", metrics);
+
+        handler = new ChatWebSocketHandler();
+        StandIns.inject(handler, "sessionRegistry", sessionRegistry);
+        StandIns.inject(handler, "clusterRouter", clusterRouter);
+        StandIns.inject(handler, "outboundDelivery", outboundDelivery);
+        StandIns.inject(handler, "frameCodec", codec);
+        StandIns.inject(handler, "chatPipeline", pipeline);
+        StandIns.inject(handler, "agentAssignmentService", assignments);
+        // Limits no benchmark client reaches, so every message pays for the check and none is dropped
+        RateLimiter rateLimiter = new RateLimiter(1, Duration.ofSeconds(1), 1_000_000, Duration.ofNanos(1),
+                1_000_000, Duration.ofNanos(1), 100_000, 64);
+        StandIns.inject(rateLimiter, "chatMetrics", metrics);
+        StandIns.inject(handler, "rateLimiter", rateLimiter);
+        StandIns.inject(handler, "conversationReaper", conversationReaper);
+
+        guestSession = connect(handler, "s1", "Guest_1", "GUEST");
+        connect(handler, "s2", "agent1", "SUPPORT_AGENT");
+    }
+
+    @TearDown
+    public void tearDown() {
+        outboundDelivery.destroy();
+    }
+
+    @Benchmark
+    public void routeChatMessage() throws Exception {
+        handler.handleTextMessage(guestSession, CHAT);
+    }
+
+    private static WebSocketSession connect(ChatWebSocketHandler handler, String sessionId, String userId, String role) throws Exception {
+        Map<String, Object> attributes = new ConcurrentHashMap<>();
+        UsernamePasswordAuthenticationToken principal = UsernamePasswordAuthenticationToken.authenticated(userId, null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+        WebSocketSession session = StandIns.proxy(WebSocketSession.class, (method, args) ->
+                switch (method) {
+                    case "getId" -> sessionId;
+                    case "isOpen" -> true;
+                    case "getAttributes" -> attributes;
+                    case "getPrincipal" -> principal;
+                    default -> null;
+                });
+        handler.afterConnectionEstablished(session);
+        return session;
+    }
+}
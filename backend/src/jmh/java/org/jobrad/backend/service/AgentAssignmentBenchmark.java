@@ -0,0 +1,80 @@
+package org.jobrad.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jobrad.backend.StandIns;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.jobrad.backend.repository.ConversationRepository;
+import org.jobrad.backend.entity.UserRole;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Guests connecting and leaving concurrently: each operation assigns one guest and frees it again.
+ * With fewer agent slots than threads, guests queue and are handed over by the drain loop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class AgentAssignmentBenchmark {
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    @Param({"2", "16"})
+    public int agents;
+
+    private AgentAssignmentServiceImpl service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new AgentAssignmentServiceImpl(3, new InMemoryAssignmentStore(),
+                new WaitingQueuePolicy(Duration.ofMinutes(2), Duration.ofMinutes(5), 200, Duration.ofMinutes(2)));
+        StandIns.inject(service, "messagingTemplate", new SimpMessagingTemplate((message, timeout) -> true));
+        StandIns.inject(service, "conversationRepository", StandIns.proxy(ConversationRepository.class,
+                (method, args) -> "save".equals(method) ? args[0] : null));
+        StandIns.inject(service, "eventPublisher", (ApplicationEventPublisher) event -> {
+        });
+        StandIns.inject(service, "chatMetrics", new ChatMetrics(new SimpleMeterRegistry()));
+        for (int i = 1; i <= agents; i++) {
+            service.getAssignedGuests("agent" + i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Guests {
+        private final String prefix = "Guest_" + THREADS.incrementAndGet() + "_";
+        private long next;
+
+        String nextGuest() {
+            return prefix + next++;
+        }
+    }
+
+    @Benchmark
+    public void assignAndFree(Guests guests, Blackhole blackhole) {
+        String guestId = guests.nextGuest();
+        blackhole.consume(service.assignAgent(guestId, UserRole.GUEST));
+        service.freeGuest(guestId);
+    }
+}
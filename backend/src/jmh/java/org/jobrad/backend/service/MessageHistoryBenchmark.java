@@ -0,0 +1,92 @@
+package org.jobrad.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jobrad.backend.StandIns;
+import org.jobrad.backend.archive.MessageArchive;
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.dto.MessagePageResponse;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.jobrad.backend.repository.MessageRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code getMessagesForUser} for one page of 50: served from the history cache, and past the
+ * cached window, where the sent and received rows from the repository are merged and mapped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageHistoryBenchmark {
+
+    private static final String USER = "Guest_1";
+    private static final int PAGE_SIZE = 50;
+    private static final int HISTORY = 400;
+
+    private MessageServiceImpl messageService;
+    private MessageCursor pastCachedWindow;
+
+    @Setup
+    public void setUp() {
+        List<Message> sent = new ArrayList<>();
+        List<Message> received = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        UUID conversationId = UUID.randomUUID();
+        // Newest first, as the "before" queries return them
+        for (int i = HISTORY; i > 0; i--) {
+            boolean fromGuest = i % 2 == 0;
+            Message message = new Message((long) i, "message " + i, fromGuest ? "agent1" : USER,
+                    fromGuest ? USER : "agent1", fromGuest ? UserRole.GUEST : UserRole.SUPPORT_AGENT,
+                    start.plusSeconds(i), conversationId);
+            (fromGuest ? sent : received).add(message);
+        }
+        pastCachedWindow = new MessageCursor(start.plusSeconds(2), 2L);
+
+        messageService = new MessageServiceImpl();
+        StandIns.inject(messageService, "messageRepository", StandIns.proxy(MessageRepository.class, (method, args) ->
+                switch (method) {
+                    case "findSentBefore" -> sent.subList(0, Math.min(sent.size(), ((Limit) args[3]).max()));
+                    case "findReceivedBefore" -> received.subList(0, Math.min(received.size(), ((Limit) args[3]).max()));
+                    default -> throw new UnsupportedOperationException(method);
+                }));
+        StandIns.inject(messageService, "messagePersistenceQueue", new MessagePersistenceQueue(
+                StandIns.proxy(PlatformTransactionManager.class, (method, args) -> null), 16, 1, 20, 50,
+                new ChatMetrics(new SimpleMeterRegistry())));
+        // No segments, as before anything is archived
+        StandIns.inject(messageService, "messageArchive", new MessageArchive(Path.of("build", "jmh-archive")));
+        StandIns.inject(messageService, "messageHistoryCache", new MessageHistoryCache(1000, 100, Duration.ofMinutes(30)));
+    }
+
+    @Benchmark
+    public MessagePageResponse latestPageFromCache() {
+        return messageService.getMessagesForUser(USER, null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MessagePageResponse olderPageFromRepository() {
+        return messageService.getMessagesForUser(USER, null, pastCachedWindow, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,51 @@
+package org.jobrad.backend.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A support agent: logs in, announces itself as available, and keeps one
+ * connection per transport open, answering every guest message on the transport it came in on.
+ */
+final class AgentClient {
+
+    static final String REPLY_PREFIX = "re:";
+
+    private final String agentId;
+    private final LoadTestHttp http;
+    private final LoadTestMetrics metrics;
+    private final List<ChatConnection> connections = new ArrayList<>();
+
+    AgentClient(String agentId, LoadTestHttp http, LoadTestMetrics metrics) {
+        this.agentId = agentId;
+        this.http = http;
+        this.metrics = metrics;
+    }
+
+    void start(Connector connector) throws Exception {
+        long loginStart = System.nanoTime();
+        if (http.login(agentId).statusCode() != 200) {
+            throw new IllegalStateException("Login failed for " + agentId);
+        }
+        metrics.agentLogin.record(System.nanoTime() - loginStart);
+        // Asking for assignments registers the agent as available
+        http.get("/api/assignment/" + agentId, agentId);
+        for (Transport transport : Transport.values()) {
+            ChatConnection[] connection = new ChatConnection[1];
+            connection[0] = connector.connect(transport, agentId, http.accessToken(agentId), (sender, content) -> {
+                if (!sender.equals(agentId) && content.startsWith(GuestClient.MESSAGE_PREFIX)) {
+                    try {
+                        connection[0].send(sender, "SUPPORT_AGENT", REPLY_PREFIX + content);
+                    } catch (RuntimeException e) {
+                        metrics.error("agent reply failed");
+                    }
+                }
+            });
+            connections.add(connection[0]);
+        }
+    }
+
+    void stop() {
+        connections.forEach(ChatConnection::close);
+    }
+}
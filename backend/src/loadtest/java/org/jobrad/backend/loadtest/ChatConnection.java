@@ -0,0 +1,17 @@
+package org.jobrad.backend.loadtest;
+
+/**
+ * One client's chat session over either transport. Incoming chat messages are passed to the
+ * listener given when connecting.
+ */
+interface ChatConnection extends AutoCloseable {
+
+    void send(String recipient, String senderType, String content);
+
+    @Override
+    void close();
+
+    interface Listener {
+        void onMessage(String sender, String content);
+    }
+}
@@ -0,0 +1,11 @@
+package org.jobrad.backend.loadtest;
+
+/**
+ * Opens a connected, subscribed chat session for a user over the given transport, authenticated
+ * with the user's access token.
+ */
+@FunctionalInterface
+interface Connector {
+
+    ChatConnection connect(Transport transport, String userId, String accessToken, ChatConnection.Listener listener) throws Exception;
+}
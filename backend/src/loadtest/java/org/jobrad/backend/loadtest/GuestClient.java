@@ -0,0 +1,98 @@
+package org.jobrad.backend.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A guest: signs up anonymously, which assigns an agent, connects over its transport, sends a
+ * number of messages with think time in between, and measures the time until each agent reply
+ * arrives. Ends its chat the way the frontend does when it is done.
+ */
+final class GuestClient implements Runnable {
+
+    static final String MESSAGE_PREFIX = "lt:";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final LoadTestOptions options;
+    private final Transport transport;
+    private final LoadTestHttp http;
+    private final Connector connector;
+    private final LoadTestMetrics metrics;
+    private final Map<String, Long> sentAt = new ConcurrentHashMap<>();
+    private final CountDownLatch replies;
+
+    GuestClient(LoadTestOptions options, Transport transport, LoadTestHttp http, Connector connector, LoadTestMetrics metrics) {
+        this.options = options;
+        this.transport = transport;
+        this.http = http;
+        this.connector = connector;
+        this.metrics = metrics;
+        this.replies = new CountDownLatch(options.messagesPerGuest());
+    }
+
+    @Override
+    public void run() {
+        try {
+            long signupStart = System.nanoTime();
+            HttpResponse<String> signup = http.post("/api/auth/anonymous", null);
+            if (signup.statusCode() != 200) {
+                metrics.error("signup " + signup.statusCode());
+                return;
+            }
+            metrics.assignmentWait.record(System.nanoTime() - signupStart);
+            JsonNode body = OBJECT_MAPPER.readTree(signup.body());
+            String guestId = body.path("guestId").asText();
+            String agentId = body.path("agentId").asText();
+            String accessToken = body.path("accessToken").asText();
+
+            long connectStart = System.nanoTime();
+            try (ChatConnection connection = connector.connect(transport, guestId, accessToken, this::onMessage)) {
+                metrics.connect(transport).record(System.nanoTime() - connectStart);
+                for (int i = 0; i < options.messagesPerGuest(); i++) {
+                    Thread.sleep(thinkTime());
+                    String content = MESSAGE_PREFIX + guestId + ":" + i;
+                    sentAt.put(content, System.nanoTime());
+                    connection.send(agentId, "GUEST", content);
+                    metrics.messagesSent.increment();
+                }
+                if (!replies.await(options.replyTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                    metrics.error("reply timeout " + transport.name().toLowerCase());
+                }
+                // Leaving the chat frees the agent's slot for the next guest
+                http.post("/api/assignment/guest/" + guestId, options.adminUser());
+            }
+            metrics.guestsCompleted.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            metrics.error(transport.name().toLowerCase() + " guest " + cause.getClass().getSimpleName());
+        }
+    }
+
+    private void onMessage(String sender, String content) {
+        if (!content.startsWith(AgentClient.REPLY_PREFIX)) {
+            // Echo of our own message
+            return;
+        }
+        Long sent = sentAt.remove(content.substring(AgentClient.REPLY_PREFIX.length()));
+        if (sent != null) {
+            metrics.roundTrip(transport).record(System.nanoTime() - sent);
+            metrics.repliesReceived.increment();
+            replies.countDown();
+        }
+    }
+
+    private long thinkTime() {
+        long think = options.thinkTimeMillis();
+        return think <= 0 ? 0 : ThreadLocalRandom.current().nextLong(think / 2, think + think / 2 + 1);
+    }
+}
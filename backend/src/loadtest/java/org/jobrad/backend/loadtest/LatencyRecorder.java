@@ -0,0 +1,49 @@
+package org.jobrad.backend.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects latency samples in nanoseconds and reports exact percentiles. Runs are bounded by the
+ * number of simulated clients, so keeping every sample is cheaper than an approximate histogram.
+ */
+final class LatencyRecorder {
+
+    private final String name;
+    private long[] samples = new long[1024];
+    private int count;
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    synchronized String summary() {
+        if (count == 0) {
+            return String.format("%-22s %8d", name, 0);
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return String.format("%-22s %8d %10.2f %10.2f %10.2f %10.2f", name, count,
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                millis(percentile(sorted, 0.999)), millis(sorted[count - 1]));
+    }
+
+    static String header() {
+        return String.format("%-22s %8s %10s %10s %10s %10s", "latency (ms)", "count", "p50", "p99", "p999", "max");
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
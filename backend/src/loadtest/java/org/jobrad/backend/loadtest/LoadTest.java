@@ -0,0 +1,123 @@
+package org.jobrad.backend.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.jobrad.backend.BackendApplication;
+import org.jobrad.backend.entity.User;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.repository.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load generator. Boots the backend in this JVM on a random port with its embedded
+ * database, brings a pool of agents online, then runs guests that sign up, chat and leave, spread
+ * over the ramp-up period. Prints connection, assignment and round-trip latency percentiles and
+ * error counts. Run with {@code gradle loadTest -PloadTestArgs='--guests=2000 --agents=40'}.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BackendApplication.class)
+                .run("--server.port=0",
+                        "--chat.assignment.agent-slots=" + options.agentSlots(),
+                        // Every simulated guest signs up from this machine's address
+                        "--chat.ratelimit.signup.capacity=" + options.guests(),
+                        "--logging.level.root=WARN",
+                        // Late frames on client sessions the guests already closed
+                        "--logging.level.org.springframework.web.socket.sockjs.client=OFF",
+                        "--spring.jpa.show-sql=false");
+        try {
+            run(options, context);
+        } finally {
+            context.close();
+            // Client threads would otherwise keep the JVM alive after a failed run
+            System.exit(0);
+        }
+    }
+
+    private static void run(LoadTestOptions options, ConfigurableApplicationContext context) throws Exception {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        seedAgents(context, options);
+
+        LoadTestMetrics metrics = new LoadTestMetrics();
+        LoadTestHttp http = new LoadTestHttp("http://localhost:" + port, LoadTestOptions.PASSWORD);
+        StandardWebSocketClient webSocketClient = new StandardWebSocketClient();
+        WebSocketStompClient stompClient = new WebSocketStompClient(new SockJsClient(List.of(new WebSocketTransport(webSocketClient))));
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(new ObjectMapper().registerModule(new JavaTimeModule()));
+        stompClient.setMessageConverter(converter);
+        String stompUrl = "http://localhost:" + port + "/chat";
+        URI rawUri = URI.create("ws://localhost:" + port + "/chat");
+
+        Connector connector = (transport, userId, accessToken, listener) -> (transport == Transport.RAW
+                ? RawChatConnection.connect(webSocketClient, rawUri, userId, accessToken, listener, metrics)
+                : StompChatConnection.connect(stompClient, stompUrl, userId, accessToken, listener, metrics))
+                .get(30, TimeUnit.SECONDS);
+
+        List<AgentClient> agents = new ArrayList<>();
+        for (int i = 1; i <= options.agents(); i++) {
+            AgentClient agent = new AgentClient("agent" + i, http, metrics);
+            agent.start(connector);
+            agents.add(agent);
+        }
+
+        // Guests block while they think, so each gets its own thread
+        ExecutorService guests = Executors.newCachedThreadPool();
+        long start = System.nanoTime();
+        int rawGuests = (int) Math.round(options.guests() * options.rawRatio());
+        for (int i = 0; i < options.guests(); i++) {
+            long arrival = options.guests() > 1 ? options.rampUpMillis() * i / (options.guests() - 1) : 0;
+            long delay = TimeUnit.MILLISECONDS.toNanos(arrival) - (System.nanoTime() - start);
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+            // Interleave transports so both see the same arrival pattern
+            Transport transport = (long) (i + 1) * rawGuests / options.guests() > (long) i * rawGuests / options.guests()
+                    ? Transport.RAW : Transport.STOMP;
+            guests.execute(new GuestClient(options, transport, http, connector, metrics));
+        }
+        guests.shutdown();
+        guests.awaitTermination(1, TimeUnit.HOURS);
+        long elapsed = System.nanoTime() - start;
+
+        agents.forEach(AgentClient::stop);
+        System.out.printf("%nLoad test: %d guests (%d raw), %d agents x %d slots, %d messages each%n%n",
+                options.guests(), rawGuests, options.agents(), options.agentSlots(), options.messagesPerGuest());
+        System.out.print(metrics.report(elapsed));
+    }
+
+    // The application only creates agent1
+    private static void seedAgents(ConfigurableApplicationContext context, LoadTestOptions options) {
+        UserRepository users = context.getBean(UserRepository.class);
+        PasswordEncoder passwordEncoder = context.getBean(PasswordEncoder.class);
+        String password = passwordEncoder.encode(LoadTestOptions.PASSWORD);
+        for (int i = 2; i <= options.agents(); i++) {
+            users.save(User.builder()
+                    .id(UUID.randomUUID())
+                    .username("agent" + i)
+                    .password(password)
+                    .role(UserRole.SUPPORT_AGENT)
+                    .build());
+        }
+    }
+}
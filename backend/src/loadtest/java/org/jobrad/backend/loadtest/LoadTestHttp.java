@@ -0,0 +1,69 @@
+package org.jobrad.backend.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The REST calls the frontend makes. Users log in once with HTTP basic credentials and send the
+ * access token they get back on every later call.
+ */
+final class LoadTestHttp {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final String baseUrl;
+    private final String password;
+    private final Map<String, String> accessTokens = new ConcurrentHashMap<>();
+
+    LoadTestHttp(String baseUrl, String password) {
+        this.baseUrl = baseUrl;
+        this.password = password;
+    }
+
+    // Trades the user's password for a token used by later calls of that user
+    HttpResponse<String> login(String user) throws IOException, InterruptedException {
+        String credentials = Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Basic " + credentials)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 200) {
+            accessTokens.put(user, OBJECT_MAPPER.readTree(response.body()).path("accessToken").asText());
+        }
+        return response;
+    }
+
+    String accessToken(String user) {
+        return accessTokens.get(user);
+    }
+
+    HttpResponse<String> get(String path, String user) throws IOException, InterruptedException {
+        return client.send(request(path, user).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Posts an empty body; user may be null for unauthenticated calls, otherwise must have logged in
+    HttpResponse<String> post(String path, String user) throws IOException, InterruptedException {
+        return client.send(request(path, user).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path, String user) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+        if (user != null) {
+            builder.header("Authorization", "Bearer " + accessTokens.get(user));
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,52 @@
+package org.jobrad.backend.loadtest;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Everything one load-test run measures, shared by all simulated clients.
+ */
+final class LoadTestMetrics {
+
+    final LatencyRecorder agentLogin = new LatencyRecorder("agent login");
+    final LatencyRecorder assignmentWait = new LatencyRecorder("guest assignment wait");
+    final LatencyRecorder stompConnect = new LatencyRecorder("connect stomp");
+    final LatencyRecorder rawConnect = new LatencyRecorder("connect raw");
+    final LatencyRecorder stompRoundTrip = new LatencyRecorder("round trip stomp");
+    final LatencyRecorder rawRoundTrip = new LatencyRecorder("round trip raw");
+
+    final LongAdder messagesSent = new LongAdder();
+    final LongAdder repliesReceived = new LongAdder();
+    final LongAdder guestsCompleted = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    LatencyRecorder connect(Transport transport) {
+        return transport == Transport.RAW ? rawConnect : stompConnect;
+    }
+
+    LatencyRecorder roundTrip(Transport transport) {
+        return transport == Transport.RAW ? rawRoundTrip : stompRoundTrip;
+    }
+
+    void error(String kind) {
+        errors.computeIfAbsent(kind, k -> new LongAdder()).increment();
+    }
+
+    String report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        StringBuilder report = new StringBuilder();
+        report.append(LatencyRecorder.header()).append('\n');
+        for (LatencyRecorder recorder : new LatencyRecorder[]{agentLogin, assignmentWait, stompConnect, rawConnect,
+                stompRoundTrip, rawRoundTrip}) {
+            report.append(recorder.summary()).append('\n');
+        }
+        report.append(String.format("%nguests completed %d, messages sent %d, replies received %d in %.1fs (%.0f msg/s)%n",
+                guestsCompleted.sum(), messagesSent.sum(), repliesReceived.sum(), seconds, messagesSent.sum() / seconds));
+        Map<String, Long> sortedErrors = new TreeMap<>();
+        errors.forEach((kind, count) -> sortedErrors.put(kind, count.sum()));
+        report.append("errors ").append(sortedErrors.isEmpty() ? "none" : sortedErrors).append('\n');
+        return report.toString();
+    }
+}
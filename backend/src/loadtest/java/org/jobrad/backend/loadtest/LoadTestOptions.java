@@ -0,0 +1,46 @@
+package org.jobrad.backend.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Run parameters, given as {@code --name=value} arguments.
+ *
+ * @param guests            guests simulated over the run
+ * @param agents            agents online for the whole run
+ * @param agentSlots        concurrent chats per agent; defaults to enough for every guest at once
+ * @param rawRatio          share of guests on the raw handler, the rest use STOMP
+ * @param messagesPerGuest  messages each guest sends
+ * @param thinkTimeMillis   mean pause before each message
+ * @param rampUpMillis      time over which guest arrivals are spread
+ * @param replyTimeoutMillis how long a guest waits for outstanding replies
+ */
+record LoadTestOptions(int guests, int agents, int agentSlots, double rawRatio, int messagesPerGuest,
+                       long thinkTimeMillis, long rampUpMillis, long replyTimeoutMillis) {
+
+    static final String PASSWORD = "password";
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int guests = Integer.parseInt(values.getOrDefault("guests", "1000"));
+        int agents = Integer.parseInt(values.getOrDefault("agents", "50"));
+        int agentSlots = Integer.parseInt(values.getOrDefault("agent-slots", String.valueOf((guests + agents - 1) / agents)));
+        return new LoadTestOptions(guests, agents, agentSlots,
+                Double.parseDouble(values.getOrDefault("raw-ratio", "0.5")),
+                Integer.parseInt(values.getOrDefault("messages", "10")),
+                Long.parseLong(values.getOrDefault("think-ms", "500")),
+                Long.parseLong(values.getOrDefault("ramp-up-ms", "10000")),
+                Long.parseLong(values.getOrDefault("reply-timeout-ms", "30000")));
+    }
+
+    // Any authenticated user may end a guest's chat
+    String adminUser() {
+        return "agent1";
+    }
+}
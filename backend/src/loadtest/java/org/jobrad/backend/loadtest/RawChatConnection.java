@@ -0,0 +1,77 @@
+package org.jobrad.backend.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Client of the raw {@code /chat} handler: connects with a bearer token and exchanges chat
+ * messages as plain JSON text frames.
+ */
+final class RawChatConnection implements ChatConnection {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String userId;
+    private final WebSocketSession session;
+
+    private RawChatConnection(String userId, WebSocketSession session) {
+        this.userId = userId;
+        // The harness sends from several threads; the decorator serializes them
+        this.session = new ConcurrentWebSocketSessionDecorator(session, 10_000, 1024 * 1024);
+    }
+
+    static CompletableFuture<ChatConnection> connect(WebSocketClient client, URI uri, String userId, String accessToken,
+                                                     Listener listener, LoadTestMetrics metrics) {
+        TextWebSocketHandler handler = new TextWebSocketHandler() {
+            @Override
+            protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+                JsonNode json = OBJECT_MAPPER.readTree(message.getPayload());
+                listener.onMessage(json.path("sender").asText(), json.path("content").asText());
+            }
+
+            @Override
+            public void handleTransportError(WebSocketSession session, Throwable exception) {
+                metrics.error("raw transport error");
+            }
+        };
+        // The handshake authenticates the session; no subscribe frame is needed
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        headers.setBearerAuth(accessToken);
+        return client.execute(handler, headers, uri).thenApply(session -> new RawChatConnection(userId, session));
+    }
+
+    @Override
+    public void send(String recipient, String senderType, String content) {
+        sendJson(Map.of("sender", userId, "recipient", recipient, "senderType", senderType, "content", content));
+    }
+
+    @Override
+    public void close() {
+        try {
+            session.close(CloseStatus.NORMAL);
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    private void sendJson(Map<String, String> frame) {
+        try {
+            session.sendMessage(new TextMessage(OBJECT_MAPPER.writeValueAsString(frame)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.jobrad.backend.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * STOMP over SockJS client, subscribed to the same user queues as the frontend and sending to
+ * {@code /app/chat}.
+ */
+final class StompChatConnection implements ChatConnection {
+
+    private final String userId;
+    private final StompSession session;
+
+    private StompChatConnection(String userId, StompSession session) {
+        this.userId = userId;
+        this.session = session;
+    }
+
+    static CompletableFuture<ChatConnection> connect(WebSocketStompClient client, String url, String userId, String accessToken,
+                                                     Listener listener, LoadTestMetrics metrics) {
+        StompSessionHandlerAdapter handler = new StompSessionHandlerAdapter() {
+            @Override
+            public void handleTransportError(StompSession session, Throwable exception) {
+                metrics.error("stomp transport error");
+            }
+        };
+        // As in the browser, which cannot set headers on SockJS requests
+        return client.connectAsync(url + "?access_token=" + accessToken, handler).thenApply(session -> {
+            session.subscribe("/user/" + userId + "/queue/messages", new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return JsonNode.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    JsonNode json = (JsonNode) payload;
+                    listener.onMessage(json.path("sender").asText(), json.path("content").asText());
+                }
+            });
+            return new StompChatConnection(userId, session);
+        });
+    }
+
+    @Override
+    public synchronized void send(String recipient, String senderType, String content) {
+        session.send("/app/chat", Map.of("sender", userId, "recipient", recipient, "senderType", senderType, "content", content));
+    }
+
+    @Override
+    public void close() {
+        if (session.isConnected()) {
+            session.disconnect();
+        }
+    }
+}
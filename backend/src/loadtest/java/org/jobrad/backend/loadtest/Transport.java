@@ -0,0 +1,8 @@
+package org.jobrad.backend.loadtest;
+
+enum Transport {
+    // STOMP over SockJS, as the frontend connects
+    STOMP,
+    // The plain WebSocket handler on /chat
+    RAW
+}
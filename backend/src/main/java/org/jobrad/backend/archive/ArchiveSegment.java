@@ -0,0 +1,326 @@
+package org.jobrad.backend.archive;
+
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * One immutable archive file. Every message is stored once under each of its keys (sender, recipient
+ * and conversation), sorted by (key, timestamp, id) and cut into deflate-compressed blocks. The first
+ * entry of every block forms a sparse index kept on the heap, so a lookup is a binary search followed
+ * by inflating the few blocks that hold the requested range, read straight from the mapped file.
+ *
+ * <pre>
+ * block*  deflated: count, entries of key, id, timestamp, sender, recipient, sender type, conversation, content
+ * index   newest timestamp and id, block count, per block: first key, timestamp and id, offset, length, inflated length
+ * footer  index offset, magic
+ * </pre>
+ */
+final class ArchiveSegment {
+
+    private static final int MAGIC = 0x43534547;
+    private static final int FOOTER_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int BLOCK_ENTRIES = 256;
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator.comparing(Entry::key)
+            .thenComparing(entry -> entry.message().getTimestamp())
+            .thenComparing(entry -> entry.message().getId());
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final MessageCursor newest;
+    private final String[] firstKeys;
+    private final LocalDateTime[] firstTimestamps;
+    private final long[] firstIds;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] inflatedLengths;
+
+    private ArchiveSegment(Path path, MappedByteBuffer data, DataInputStream index) throws IOException {
+        this.path = path;
+        this.data = data;
+        this.newest = new MessageCursor(readTimestamp(index), index.readLong());
+        int blocks = index.readInt();
+        this.firstKeys = new String[blocks];
+        this.firstTimestamps = new LocalDateTime[blocks];
+        this.firstIds = new long[blocks];
+        this.offsets = new int[blocks];
+        this.lengths = new int[blocks];
+        this.inflatedLengths = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            firstKeys[b] = index.readUTF();
+            firstTimestamps[b] = readTimestamp(index);
+            firstIds[b] = index.readLong();
+            offsets[b] = index.readInt();
+            lengths[b] = index.readInt();
+            inflatedLengths[b] = index.readInt();
+        }
+    }
+
+    static String userKey(String userId) {
+        return "u:" + userId;
+    }
+
+    static String conversationKey(UUID conversationId) {
+        return "c:" + conversationId;
+    }
+
+    /**
+     * Writes the messages to a new segment at {@code path}. The file is written under a temporary
+     * name, synced and then renamed, so a segment is either complete or absent.
+     */
+    static ArchiveSegment write(Path path, List<Message> messages) throws IOException {
+        List<Entry> entries = new ArrayList<>(messages.size() * 3);
+        MessageCursor newest = null;
+        for (Message message : messages) {
+            entries.add(new Entry(userKey(message.getSender()), message));
+            if (!message.getRecipient().equals(message.getSender())) {
+                entries.add(new Entry(userKey(message.getRecipient()), message));
+            }
+            if (message.getConversationId() != null) {
+                entries.add(new Entry(conversationKey(message.getConversationId()), message));
+            }
+            MessageCursor cursor = new MessageCursor(message.getTimestamp(), message.getId());
+            if (newest == null || MessageCursor.ORDER.compare(cursor, newest) > 0) {
+                newest = cursor;
+            }
+        }
+        if (newest == null) {
+            throw new IllegalArgumentException("An archive segment needs at least one message");
+        }
+        entries.sort(ENTRY_ORDER);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+            DataOutputStream index = new DataOutputStream(indexBytes);
+            writeTimestamp(index, newest.timestamp());
+            index.writeLong(newest.id());
+            index.writeInt((entries.size() + BLOCK_ENTRIES - 1) / BLOCK_ENTRIES);
+
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            long offset = 0;
+            for (int from = 0; from < entries.size(); from += BLOCK_ENTRIES) {
+                List<Entry> block = entries.subList(from, Math.min(entries.size(), from + BLOCK_ENTRIES));
+                raw.reset();
+                DataOutputStream blockOut = new DataOutputStream(raw);
+                blockOut.writeInt(block.size());
+                for (Entry entry : block) {
+                    writeEntry(blockOut, entry);
+                }
+                byte[] deflated = deflate(raw);
+                if (offset + deflated.length > Integer.MAX_VALUE) {
+                    throw new IOException("Archive segment exceeds 2 GB, archive smaller batches: " + path);
+                }
+
+                Message first = block.get(0).message();
+                index.writeUTF(block.get(0).key());
+                writeTimestamp(index, first.getTimestamp());
+                index.writeLong(first.getId());
+                index.writeInt((int) offset);
+                index.writeInt(deflated.length);
+                index.writeInt(raw.size());
+                out.write(deflated);
+                offset += deflated.length;
+            }
+            indexBytes.writeTo(out);
+            out.writeLong(offset);
+            out.writeInt(MAGIC);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(path);
+    }
+
+    static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FOOTER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not an archive segment: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (data.getInt((int) size - Integer.BYTES) != MAGIC) {
+                throw new IOException("Not an archive segment: " + path);
+            }
+            int indexOffset = (int) data.getLong((int) size - FOOTER_BYTES);
+            byte[] index = new byte[(int) size - FOOTER_BYTES - indexOffset];
+            data.get(indexOffset, index);
+            return new ArchiveSegment(path, data, new DataInputStream(new ByteArrayInputStream(index)));
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    MessageCursor newest() {
+        return newest;
+    }
+
+    // Up to limit messages under key older than before, newest first
+    List<Message> before(String key, MessageCursor before, int limit) {
+        List<Message> found = new ArrayList<>();
+        for (int b = lastBlockStartingBefore(key, before, false); b >= 0; b--) {
+            List<Entry> block = block(b);
+            for (int i = block.size() - 1; i >= 0; i--) {
+                Entry entry = block.get(i);
+                if (compare(entry.key(), entry.message().getTimestamp(), entry.message().getId(), key, before) >= 0) {
+                    continue;
+                }
+                if (!entry.key().equals(key) || found.size() == limit) {
+                    return found;
+                }
+                found.add(entry.message());
+            }
+        }
+        return found;
+    }
+
+    // Up to limit messages under key newer than after, oldest first
+    List<Message> after(String key, MessageCursor after, int limit) {
+        List<Message> found = new ArrayList<>();
+        for (int b = Math.max(0, lastBlockStartingBefore(key, after, true)); b < firstKeys.length; b++) {
+            for (Entry entry : block(b)) {
+                if (compare(entry.key(), entry.message().getTimestamp(), entry.message().getId(), key, after) <= 0) {
+                    continue;
+                }
+                if (!entry.key().equals(key) || found.size() == limit) {
+                    return found;
+                }
+                found.add(entry.message());
+            }
+        }
+        return found;
+    }
+
+    private int lastBlockStartingBefore(String key, MessageCursor cursor, boolean inclusive) {
+        int low = 0;
+        int high = firstKeys.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int order = compare(firstKeys[mid], firstTimestamps[mid], firstIds[mid], key, cursor);
+            if (order < 0 || (inclusive && order == 0)) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private List<Entry> block(int b) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.slice(offsets[b], lengths[b]));
+            byte[] raw = new byte[inflatedLengths[b]];
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && inflater.needsInput()) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != raw.length) {
+                throw new IllegalStateException("Truncated block " + b + " in archive segment " + path);
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+            int count = in.readInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(readEntry(in));
+            }
+            return entries;
+        } catch (DataFormatException | IOException e) {
+            throw new IllegalStateException("Corrupt block " + b + " in archive segment " + path, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int compare(String key, LocalDateTime timestamp, long id, String otherKey, MessageCursor other) {
+        int order = key.compareTo(otherKey);
+        if (order != 0) {
+            return order;
+        }
+        order = timestamp.compareTo(other.timestamp());
+        return order != 0 ? order : Long.compare(id, other.id());
+    }
+
+    private static byte[] deflate(ByteArrayOutputStream raw) throws IOException {
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream(raw.size() / 3 + 64);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(deflated)) {
+            raw.writeTo(out);
+        }
+        return deflated.toByteArray();
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        Message message = entry.message();
+        out.writeUTF(entry.key());
+        out.writeLong(message.getId());
+        writeTimestamp(out, message.getTimestamp());
+        out.writeUTF(message.getSender());
+        out.writeUTF(message.getRecipient());
+        out.writeUTF(message.getSenderType().name());
+        out.writeBoolean(message.getConversationId() != null);
+        if (message.getConversationId() != null) {
+            out.writeLong(message.getConversationId().getMostSignificantBits());
+            out.writeLong(message.getConversationId().getLeastSignificantBits());
+        }
+        out.writeUTF(message.getContent());
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        String key = in.readUTF();
+        Message.MessageBuilder message = Message.builder()
+                .id(in.readLong())
+                .timestamp(readTimestamp(in))
+                .sender(in.readUTF())
+                .recipient(in.readUTF())
+                .senderType(UserRole.valueOf(in.readUTF()));
+        if (in.readBoolean()) {
+            message.conversationId(new UUID(in.readLong(), in.readLong()));
+        }
+        return new Entry(key, message.content(in.readUTF()).build());
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime timestamp) throws IOException {
+        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(timestamp.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private record Entry(String key, Message message) {
+    }
+}
@@ -0,0 +1,142 @@
+package org.jobrad.backend.archive;
+
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.entity.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read side of the message archive: the segment files in {@code chat.archive.dir}, written by
+ * {@link MessageArchiver} and never changed afterwards. Segments written by another node sharing the
+ * directory are picked up every {@code chat.archive.refresh-interval}. With no segments every lookup
+ * returns nothing without touching the disk.
+ */
+@Component
+public class MessageArchive {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final Comparator<Message> HISTORY_ORDER = Comparator
+            .comparing(Message::getTimestamp)
+            .thenComparing(Message::getId);
+
+    private final Logger logger = LoggerFactory.getLogger(MessageArchive.class);
+
+    private final Path directory;
+    // Replaced on change, never modified, so readers need no lock
+    private volatile List<ArchiveSegment> segments = List.of();
+    private volatile MessageCursor newest;
+
+    public MessageArchive(@Value("${chat.archive.dir:data/archive}") Path directory) {
+        this.directory = directory;
+    }
+
+    // Writes the messages as one new segment and makes them readable; returns once the file is durable
+    public synchronized void append(List<Message> messages) throws IOException {
+        Files.createDirectories(directory);
+        long lastId = messages.stream().mapToLong(Message::getId).max().orElseThrow();
+        // Named after its newest id, so archiving the same batch again replaces the segment
+        add(ArchiveSegment.write(directory.resolve(String.format("%019d%s", lastId, SEGMENT_SUFFIX)), messages));
+    }
+
+    @Scheduled(fixedDelayString = "${chat.archive.refresh-interval:1m}")
+    public synchronized void refresh() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Set<Path> known = segments.stream().map(ArchiveSegment::path).collect(Collectors.toSet());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path path : files) {
+                if (!known.contains(path)) {
+                    try {
+                        add(ArchiveSegment.open(path));
+                    } catch (IOException | RuntimeException e) {
+                        logger.error("MessageArchive: Failed to open segment {}: {}", path, e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("MessageArchive: Failed to list {}: {}", directory, e.getMessage());
+        }
+    }
+
+    // Newest archived message, or null if nothing is archived; older history may be archived, newer is not
+    public MessageCursor newest() {
+        return newest;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    // Up to limit archived messages of the user older than before, newest first
+    public List<Message> findForUserBefore(String userId, MessageCursor before, int limit) {
+        String key = ArchiveSegment.userKey(userId);
+        return collect(segment -> segment.before(key, before, limit), HISTORY_ORDER.reversed(), limit);
+    }
+
+    // Up to limit archived messages of the user newer than after, oldest first
+    public List<Message> findForUserAfter(String userId, MessageCursor after, int limit) {
+        String key = ArchiveSegment.userKey(userId);
+        return collect(segment -> segment.after(key, after, limit), HISTORY_ORDER, limit);
+    }
+
+    // Up to limit archived messages of the conversation older than before, newest first
+    public List<Message> findForConversationBefore(UUID conversationId, MessageCursor before, int limit) {
+        String key = ArchiveSegment.conversationKey(conversationId);
+        return collect(segment -> segment.before(key, before, limit), HISTORY_ORDER.reversed(), limit);
+    }
+
+    // Up to limit archived messages of the conversation newer than after, oldest first
+    public List<Message> findForConversationAfter(UUID conversationId, MessageCursor after, int limit) {
+        String key = ArchiveSegment.conversationKey(conversationId);
+        return collect(segment -> segment.after(key, after, limit), HISTORY_ORDER, limit);
+    }
+
+    private List<Message> collect(Function<ArchiveSegment, List<Message>> lookup, Comparator<Message> order, int limit) {
+        List<ArchiveSegment> current = segments;
+        if (current.isEmpty()) {
+            return List.of();
+        }
+        List<Message> found = new ArrayList<>();
+        for (ArchiveSegment segment : current) {
+            found.addAll(lookup.apply(segment));
+        }
+        found.sort(order);
+        // A batch archived twice, after a crash between writing it and deleting its rows, is in two segments
+        List<Message> result = new ArrayList<>(Math.min(limit, found.size()));
+        for (Message message : found) {
+            if (result.size() == limit) {
+                break;
+            }
+            if (result.isEmpty() || !result.get(result.size() - 1).getId().equals(message.getId())) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    private void add(ArchiveSegment segment) {
+        List<ArchiveSegment> updated = new ArrayList<>(segments);
+        updated.removeIf(existing -> existing.path().equals(segment.path()));
+        updated.add(segment);
+        segments = List.copyOf(updated);
+        if (newest == null || MessageCursor.ORDER.compare(segment.newest(), newest) > 0) {
+            newest = segment.newest();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.jobrad.backend.archive;
+
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.repository.MessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves messages older than {@code chat.archive.after} out of the message table into archive
+ * segments, one segment per batch of {@code chat.archive.batch-size}. Messages of a conversation
+ * move once it has ended before that age. A batch is deleted only after its segment is on disk, so a
+ * crash in between leaves messages in both places, which readers tolerate. Enable it on a single node;
+ * with several nodes {@code chat.archive.dir} must be storage they share.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.archive.enabled", havingValue = "true")
+public class MessageArchiver {
+
+    private final Logger logger = LoggerFactory.getLogger(MessageArchiver.class);
+
+    private final Duration archiveAfter;
+    private final int batchSize;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageArchive messageArchive;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public MessageArchiver(@Value("${chat.archive.after:30d}") Duration archiveAfter,
+                           @Value("${chat.archive.batch-size:50000}") int batchSize) {
+        this.archiveAfter = archiveAfter;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.archive.interval:1h}")
+    public void archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(archiveAfter);
+        MessageCursor from = MessageCursor.EARLIEST;
+        int archived = 0;
+        try {
+            List<Message> batch;
+            do {
+                batch = messageRepository.findArchivable(cutoff, from.timestamp(), from.id(), Limit.of(batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                messageArchive.append(batch);
+                // The timestamp lets PostgreSQL go straight to the message's partition
+                jdbcTemplate.batchUpdate("DELETE FROM message WHERE timestamp = ? AND id = ?", batch, 1000, (statement, message) -> {
+                    statement.setTimestamp(1, Timestamp.valueOf(message.getTimestamp()));
+                    statement.setLong(2, message.getId());
+                });
+                archived += batch.size();
+                Message last = batch.get(batch.size() - 1);
+                from = new MessageCursor(last.getTimestamp(), last.getId());
+            } while (batch.size() == batchSize);
+        } catch (IOException | RuntimeException e) {
+            logger.error("MessageArchiver: Archiving stopped after {} messages: {}", archived, e.getMessage());
+            return;
+        }
+        if (archived > 0) {
+            logger.info("MessageArchiver: Archived {} messages older than {}", archived, cutoff);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.jobrad.backend.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Single-node defaults. A deployment with several replicas defines its own {@link PresenceRegistry}
+ * and {@link ClusterTransport} beans backed by shared infrastructure, and these step aside.
+ */
+@Configuration
+public class ClusterConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PresenceRegistry presenceRegistry() {
+        return new InMemoryPresenceRegistry();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ClusterTransport clusterTransport() {
+        return new LoopbackClusterTransport();
+    }
+}
@@ -0,0 +1,15 @@
+package org.jobrad.backend.cluster;
+
+/**
+ * A message forwarded to the node that holds the recipient's session. Chat envelopes carry the
+ * message's JSON frame, which the receiving node delivers on every transport; STOMP envelopes carry
+ * any other broker payload and its destination.
+ */
+public record ClusterEnvelope(String originNode, String userId, Kind kind, String destination,
+                              String contentType, byte[] payload) {
+
+    public enum Kind {
+        STOMP,
+        CHAT
+    }
+}
@@ -0,0 +1,213 @@
+package org.jobrad.backend.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.jobrad.backend.config.ChatFrame;
+import org.jobrad.backend.config.ChatFrameCodec;
+import org.jobrad.backend.config.ChatTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes user messages to whichever nodes hold the user's sessions. Local presence is counted per
+ * user (the raw handler counts once, each STOMP session once) and published to the
+ * {@link PresenceRegistry} when it starts and stops. Chat messages go through {@link #sendChat},
+ * which hands them to every {@link ChatTransport} here and sends one copy to each other node holding
+ * the user, whatever transports the user is on there. Other STOMP messages are picked up on the
+ * broker channel, so every {@code convertAndSendToUser} is forwarded without its callers knowing. A
+ * node that receives a message for a user it no longer holds drops its stale registration.
+ */
+@Component
+public class ClusterRouter implements ChannelInterceptor {
+
+    private static final String USER_PREFIX = "/user/";
+    // Marks broker messages that already went to every node that needs them, so they are not forwarded again
+    public static final String ROUTED_HEADER = "clusterRouted";
+
+    private final Logger logger = LoggerFactory.getLogger(ClusterRouter.class);
+
+    private final String nodeId;
+    private final PresenceRegistry presenceRegistry;
+    private final ClusterTransport transport;
+    private final List<ChatTransport> chatTransports;
+    private final ChatFrameCodec frameCodec;
+    private final MessageChannel brokerChannel;
+    private final Map<String, Integer> localPresence = new ConcurrentHashMap<>();
+    private final Map<String, String> stompSessionUsers = new ConcurrentHashMap<>();
+
+    public ClusterRouter(@Value("${chat.cluster.node-name:node-${chat.node-id:0}}") String nodeId,
+                         PresenceRegistry presenceRegistry,
+                         ClusterTransport transport,
+                         List<ChatTransport> chatTransports,
+                         ChatFrameCodec frameCodec,
+                         // Lazy: the broker channel is built from the configuration that installs this interceptor
+                         @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel) {
+        this.nodeId = nodeId;
+        this.presenceRegistry = presenceRegistry;
+        this.transport = transport;
+        this.chatTransports = chatTransports;
+        this.frameCodec = frameCodec;
+        this.brokerChannel = brokerChannel;
+    }
+
+    @PostConstruct
+    public void join() {
+        transport.join(nodeId, this::receive);
+    }
+
+    @PreDestroy
+    public void leave() {
+        transport.leave(nodeId);
+        presenceRegistry.removeNode(nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // The user of a STOMP session, or null before its first user subscription
+    public String getStompUser(String sessionId) {
+        return stompSessionUsers.get(sessionId);
+    }
+
+    public int getStompSessionCount() {
+        return stompSessionUsers.size();
+    }
+
+    public void userOnline(String userId) {
+        localPresence.compute(userId, (id, count) -> {
+            if (count == null) {
+                presenceRegistry.register(id, nodeId);
+                return 1;
+            }
+            return count + 1;
+        });
+    }
+
+    public void userOffline(String userId) {
+        localPresence.computeIfPresent(userId, (id, count) -> {
+            if (count > 1) {
+                return count - 1;
+            }
+            presenceRegistry.unregister(id, nodeId);
+            return null;
+        });
+    }
+
+    /**
+     * Delivers a chat message to the user's sessions on every transport, here and on every other
+     * node holding one. Returns the number of nodes, this one included, it went to.
+     */
+    public int sendChat(String userId, ChatFrame frame) {
+        int sent = deliverChat(userId, frame) ? 1 : 0;
+        for (String node : presenceRegistry.nodesOf(userId)) {
+            if (!node.equals(nodeId) && transport.send(node, new ClusterEnvelope(nodeId, userId,
+                    ClusterEnvelope.Kind.CHAT, null, null, frame.json().asBytes()))) {
+                sent++;
+            }
+        }
+        return sent;
+    }
+
+    // Every user-destination message on the broker channel is also forwarded to the user's other nodes
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE || destination == null
+                || !destination.startsWith(USER_PREFIX) || accessor.getHeader(ROUTED_HEADER) != null
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        String userId = userOf(destination);
+        for (String node : presenceRegistry.nodesOf(userId)) {
+            if (!node.equals(nodeId)) {
+                MimeType contentType = accessor.getContentType();
+                transport.send(node, new ClusterEnvelope(nodeId, userId, ClusterEnvelope.Kind.STOMP, destination,
+                        contentType != null ? contentType.toString() : null, payload));
+            }
+        }
+        return message;
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        String sessionId = accessor.getSessionId();
+        Principal user = accessor.getUser();
+        if (destination == null || sessionId == null || user == null || !destination.startsWith(USER_PREFIX)) {
+            return;
+        }
+        // The handshake's principal, which the destination guard has matched against the destination
+        String userId = user.getName();
+        // A client subscribes to several queues of the same user; the session counts once
+        if (stompSessionUsers.putIfAbsent(sessionId, userId) == null) {
+            userOnline(userId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        String userId = stompSessionUsers.remove(event.getSessionId());
+        if (userId != null) {
+            userOffline(userId);
+        }
+    }
+
+    private void receive(ClusterEnvelope envelope) {
+        if (!localPresence.containsKey(envelope.userId())) {
+            // The sender's view was stale
+            presenceRegistry.unregister(envelope.userId(), nodeId);
+            logger.debug("ClusterRouter: No local session for {}, forwarded from {}", envelope.userId(), envelope.originNode());
+            return;
+        }
+        if (envelope.kind() == ClusterEnvelope.Kind.CHAT) {
+            deliverChat(envelope.userId(), frameCodec.frame(envelope.payload()));
+        } else {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(envelope.destination());
+            if (envelope.contentType() != null) {
+                accessor.setContentType(MimeType.valueOf(envelope.contentType()));
+            }
+            accessor.setHeader(ROUTED_HEADER, envelope.originNode());
+            accessor.setLeaveMutable(true);
+            brokerChannel.send(MessageBuilder.createMessage(envelope.payload(), accessor.getMessageHeaders()));
+        }
+    }
+
+    // "/user/{userId}/queue/..." to userId
+    private static String userOf(String destination) {
+        int end = destination.indexOf('/', USER_PREFIX.length());
+        return end > 0 ? destination.substring(USER_PREFIX.length(), end) : destination.substring(USER_PREFIX.length());
+    }
+
+    private boolean deliverChat(String userId, ChatFrame frame) {
+        if (!localPresence.containsKey(userId)) {
+            return false;
+        }
+        for (ChatTransport chatTransport : chatTransports) {
+            chatTransport.deliver(userId, frame);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,17 @@
+package org.jobrad.backend.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries envelopes between backend nodes. A node joins with the receiver for envelopes addressed
+ * to it; delivery is at most once, and a message for a node that has left is dropped.
+ */
+public interface ClusterTransport {
+
+    void join(String nodeId, Consumer<ClusterEnvelope> receiver);
+
+    void leave(String nodeId);
+
+    // Returns false if the target node is not reachable
+    boolean send(String nodeId, ClusterEnvelope envelope);
+}
@@ -0,0 +1,40 @@
+package org.jobrad.backend.cluster;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Presence kept in this JVM. It is the whole picture for a single node, and several nodes running
+ * in one process (as in tests) can share one instance.
+ */
+public class InMemoryPresenceRegistry implements PresenceRegistry {
+
+    private final Map<String, Set<String>> nodesByUser = new ConcurrentHashMap<>();
+
+    @Override
+    public void register(String userId, String nodeId) {
+        nodesByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(nodeId);
+    }
+
+    @Override
+    public void unregister(String userId, String nodeId) {
+        nodesByUser.computeIfPresent(userId, (id, nodes) -> {
+            nodes.remove(nodeId);
+            return nodes.isEmpty() ? null : nodes;
+        });
+    }
+
+    @Override
+    public Set<String> nodesOf(String userId) {
+        Set<String> nodes = nodesByUser.get(userId);
+        return nodes != null ? Set.copyOf(nodes) : Set.of();
+    }
+
+    @Override
+    public void removeNode(String nodeId) {
+        for (String userId : nodesByUser.keySet()) {
+            unregister(userId, nodeId);
+        }
+    }
+}
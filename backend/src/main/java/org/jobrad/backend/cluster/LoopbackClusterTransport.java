@@ -0,0 +1,34 @@
+package org.jobrad.backend.cluster;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-process transport: delivers on the sender's thread to nodes that joined the same instance.
+ * The default for a single node, and the stand-in that lets several nodes run in one test.
+ */
+public class LoopbackClusterTransport implements ClusterTransport {
+
+    private final Map<String, Consumer<ClusterEnvelope>> receivers = new ConcurrentHashMap<>();
+
+    @Override
+    public void join(String nodeId, Consumer<ClusterEnvelope> receiver) {
+        receivers.put(nodeId, receiver);
+    }
+
+    @Override
+    public void leave(String nodeId) {
+        receivers.remove(nodeId);
+    }
+
+    @Override
+    public boolean send(String nodeId, ClusterEnvelope envelope) {
+        Consumer<ClusterEnvelope> receiver = receivers.get(nodeId);
+        if (receiver == null) {
+            return false;
+        }
+        receiver.accept(envelope);
+        return true;
+    }
+}
@@ -0,0 +1,20 @@
+package org.jobrad.backend.cluster;
+
+import java.util.Set;
+
+/**
+ * Cluster-wide record of which backend nodes hold a live session for each user. Nodes register a
+ * user when their first local session for that user opens and unregister when the last one
+ * closes. Implementations must be safe to call from any node concurrently.
+ */
+public interface PresenceRegistry {
+
+    void register(String userId, String nodeId);
+
+    void unregister(String userId, String nodeId);
+
+    Set<String> nodesOf(String userId);
+
+    // Drops every registration of a node that is leaving the cluster
+    void removeNode(String nodeId);
+}
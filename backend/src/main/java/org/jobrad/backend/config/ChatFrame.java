@@ -0,0 +1,40 @@
+package org.jobrad.backend.config;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A chat message on its way out, encoded once however many sessions, transports and nodes it
+ * reaches. The JSON text frame is shared by raw sessions, the STOMP broker and other nodes; the
+ * CBOR frame is made from it only if a session negotiated CBOR. Built and used on one thread.
+ */
+public final class ChatFrame {
+
+    private final TextMessage json;
+    private final ChatFrameCodec codec;
+    private BinaryMessage cbor;
+
+    ChatFrame(TextMessage json, ChatFrameCodec codec) {
+        this.json = json;
+        this.codec = codec;
+    }
+
+    public TextMessage json() {
+        return json;
+    }
+
+    public BinaryMessage cbor() {
+        if (cbor == null) {
+            try {
+                cbor = codec.toCbor(json);
+            } catch (IOException e) {
+                // The JSON was written by a codec, so it always parses
+                throw new UncheckedIOException(e);
+            }
+        }
+        return cbor;
+    }
+}
@@ -0,0 +1,159 @@
+package org.jobrad.backend.config;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Streaming JSON codec for the raw WebSocket protocol. An inbound payload is read in one pass into
+ * either a subscription or a chat message; an outbound message is written once into a
+ * {@link TextMessage} that can be shared by every session it is routed to. Timestamps are written
+ * as ISO-8601 strings, the same as on the STOMP path, so STOMP clients get the very same bytes.
+ *
+ * <p>Raw clients that negotiate the {@value #CBOR_SUBPROTOCOL} subprotocol exchange the same fields
+ * as CBOR in binary frames instead, which is smaller and cheaper to parse.
+ */
+@Component
+public class ChatFrameCodec {
+
+    public static final String CBOR_SUBPROTOCOL = "chat.cbor";
+    private static final String SUBSCRIBE = "subscribe";
+
+    // Thread-safe once configured; parsers and generators recycle their buffers
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final CBORFactory cborFactory = new CBORFactory();
+
+    public Frame decode(String payload) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            return read(parser);
+        }
+    }
+
+    public Frame decodeCbor(ByteBuffer payload) throws IOException {
+        JsonParser parser = payload.hasArray()
+                ? cborFactory.createParser(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining())
+                : cborFactory.createParser(toArray(payload));
+        try (parser) {
+            return read(parser);
+        }
+    }
+
+    // Encoded once to UTF-8; the frame keeps both the bytes and the text
+    public TextMessage encode(Message message) throws IOException {
+        ByteArrayBuilder out = new ByteArrayBuilder(jsonFactory._getBufferRecycler());
+        try {
+            try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+                write(generator, message);
+            }
+            return new TextMessage(out.toByteArray());
+        } finally {
+            out.release();
+        }
+    }
+
+    // The same structure as the JSON frame, field for field, so nodes only ever exchange JSON
+    public BinaryMessage toCbor(TextMessage json) throws IOException {
+        ByteArrayBuilder out = new ByteArrayBuilder(cborFactory._getBufferRecycler());
+        try {
+            try (JsonParser parser = jsonFactory.createParser(json.asBytes());
+                 JsonGenerator generator = cborFactory.createGenerator(out)) {
+                parser.nextToken();
+                generator.copyCurrentStructure(parser);
+            }
+            return new BinaryMessage(out.toByteArray());
+        } finally {
+            out.release();
+        }
+    }
+
+    public ChatFrame frame(Message message) throws IOException {
+        return new ChatFrame(encode(message), this);
+    }
+
+    // A frame encoded by another node
+    public ChatFrame frame(byte[] json) {
+        return new ChatFrame(new TextMessage(json), this);
+    }
+
+    private Frame read(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected an object");
+        }
+        String type = null;
+        String userId = null;
+        Message message = new Message();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "type" -> type = parser.getValueAsString();
+                case "userId" -> userId = parser.getValueAsString();
+                case "content" -> message.setContent(parser.getValueAsString());
+                case "recipient" -> message.setRecipient(parser.getValueAsString());
+                case "sender" -> message.setSender(parser.getValueAsString());
+                case "senderType" -> message.setSenderType(value == JsonToken.VALUE_NULL ? null : UserRole.valueOf(parser.getText()));
+                // id, timestamp and conversation are assigned by the server
+                default -> parser.skipChildren();
+            }
+        }
+        return SUBSCRIBE.equals(type) ? Frame.subscribe(userId) : Frame.chat(message);
+    }
+
+    private static void write(JsonGenerator generator, Message message) throws IOException {
+        generator.writeStartObject();
+        if (message.getId() != null) {
+            // As a string, like the REST responses, since browsers round numbers above 2^53
+            generator.writeStringField("id", message.getId().toString());
+        } else {
+            generator.writeNullField("id");
+        }
+        generator.writeStringField("content", message.getContent());
+        generator.writeStringField("recipient", message.getRecipient());
+        generator.writeStringField("sender", message.getSender());
+        generator.writeStringField("senderType", message.getSenderType() != null ? message.getSenderType().name() : null);
+        generator.writeStringField("timestamp", message.getTimestamp() != null
+                ? DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(message.getTimestamp()) : null);
+        generator.writeStringField("conversationId", message.getConversationId() != null
+                ? message.getConversationId().toString() : null);
+        generator.writeEndObject();
+    }
+
+    private static byte[] toArray(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * A decoded inbound payload: a subscription carries {@code userId}, anything else is a chat
+     * message.
+     */
+    public record Frame(String userId, Message message) {
+
+        static Frame subscribe(String userId) {
+            return new Frame(userId, null);
+        }
+
+        static Frame chat(Message message) {
+            return new Frame(null, message);
+        }
+
+        public boolean isSubscribe() {
+            return message == null;
+        }
+    }
+}
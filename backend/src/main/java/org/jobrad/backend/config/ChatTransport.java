@@ -0,0 +1,11 @@
+package org.jobrad.backend.config;
+
+/**
+ * One way clients connect. Every chat message for a user held by this node is handed to each
+ * transport, which delivers it to the user's sessions in its own framing; routing, conversation
+ * checks and persistence happen once, before, whatever transport the message arrived on.
+ */
+public interface ChatTransport {
+
+    void deliver(String userId, ChatFrame frame);
+}
@@ -1,60 +1,122 @@
 package org.jobrad.backend.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.jobrad.backend.cluster.ClusterRouter;
 import org.jobrad.backend.entity.Message;
-import org.jobrad.backend.repository.MessageRepository;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.jobrad.backend.ratelimit.RateLimiter;
+import org.jobrad.backend.security.Principals;
 import org.jobrad.backend.service.AgentAssignmentService;
+import org.jobrad.backend.service.ChatPipeline;
+import org.jobrad.backend.service.ConversationReaper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
-import java.io.IOException;
-import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.security.Principal;
+import java.util.List;
 
+/**
+ * Raw WebSocket chat: the raw endpoint's adapter onto {@link ChatPipeline}. The user is the principal
+ * authenticated at the handshake: the session is registered under it on connect and every message
+ * is sent as that user, whatever the frame says. Frames are JSON text, or CBOR binary for clients
+ * that ask for the {@value ChatFrameCodec#CBOR_SUBPROTOCOL} subprotocol.
+ */
 @Component
 @Slf4j
-public class ChatWebSocketHandler extends TextWebSocketHandler {
+public class ChatWebSocketHandler extends AbstractWebSocketHandler implements SubProtocolCapable {
 
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String ROLE_ATTRIBUTE = "chat.role";
 
     private final Logger logger = LoggerFactory.getLogger(ChatWebSocketHandler.class);
 
     @Autowired
-    private MessageRepository messageRepository;
+    private WebSocketSessionRegistry sessionRegistry;
+
+    @Autowired
+    private OutboundDelivery outboundDelivery;
+
+    @Autowired
+    private ChatFrameCodec frameCodec;
+
+    @Autowired
+    private ClusterRouter clusterRouter;
+
+    @Autowired
+    private ChatPipeline chatPipeline;
 
     @Autowired
     private AgentAssignmentService agentAssignmentService;
 
+    @Autowired
+    private ConversationReaper conversationReaper;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(ChatFrameCodec.CBOR_SUBPROTOCOL);
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        logger.info("WebSocketHandler: New connection established, session: {}", session.getId());
+        Principal principal = session.getPrincipal();
+        if (principal == null) {
+            // Handshakes require a token, so only a misconfigured security chain gets here
+            logger.warn("WebSocketHandler: Unauthenticated connection refused, session: {}", session.getId());
+            session.close(CloseStatus.POLICY_VIOLATION);
+            return;
+        }
+        logger.info("WebSocketHandler: New connection established, session: {}, user: {}", session.getId(), principal.getName());
+        session.getAttributes().put(ROLE_ATTRIBUTE, Principals.roleOf(principal));
+        outboundDelivery.open(session);
+        if (sessionRegistry.register(principal.getName(), session)) {
+            clusterRouter.userOnline(principal.getName());
+        }
+    }
+
+    @Override
+    public void handleTextMessage(WebSocketSession session, TextMessage message) {
+        receive(session, message);
     }
 
     @Override
-    public void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        receive(session, message);
+    }
+
+    private void receive(WebSocketSession session, WebSocketMessage<?> message) {
+        long received = System.nanoTime();
         try {
-            String payload = message.getPayload();
-            Map<String, String> data = objectMapper.readValue(payload, Map.class);
-
-            if ("subscribe".equals(data.get("type"))) {
-                String userId = data.get("userId");
-                sessions.put(userId, session);
-            } else {
-                // Assume it's a chat message
-                Message chatMessage = objectMapper.readValue(payload, Message.class);
-                // Save to database
-                chatMessage.setTimestamp(LocalDateTime.now());
-                messageRepository.save(chatMessage);
-                routeMessage(chatMessage);
+            String userId = session.getPrincipal().getName();
+            UserRole role = (UserRole) session.getAttributes().get(ROLE_ATTRIBUTE);
+            sessionRegistry.touch(session);
+            conversationReaper.recordPresence(userId);
+            // Checked before decoding, so a flooding client costs little more than the frame read
+            if (!rateLimiter.tryMessage(userId, role)) {
+                return;
+            }
+            ChatFrameCodec.Frame frame = message instanceof BinaryMessage binary
+                    ? frameCodec.decodeCbor(binary.getPayload())
+                    : frameCodec.decode(((TextMessage) message).getPayload());
+
+            // A subscribe frame is left over from clients that named themselves; the session is registered on connect
+            if (!frame.isSubscribe()) {
+                Message chatMessage = frame.message();
+                chatMessage.setSender(userId);
+                chatMessage.setSenderType(role);
+                chatPipeline.send(chatMessage, ChatMetrics.RAW, received);
             }
         } catch (Exception e) {
             logger.error("WebSocketHandler: Error processing message: {}", e.getMessage());
@@ -62,46 +124,30 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
-    private void routeMessage(Message message) throws IOException {
-        String sender = message.getSender();
-        String recipient = message.getRecipient();
-        // Verify assignment
-        String assignedRecipient = sender.startsWith("Guest_")
-                ? agentAssignmentService.getAssignedAgent(sender)
-                : agentAssignmentService.getAssignedGuest(sender);
-        if (recipient != null && assignedRecipient != null && recipient.equals(assignedRecipient)) {
-            WebSocketSession recipientSession = sessions.get(recipient);
-            if (recipientSession != null && recipientSession.isOpen()) {
-                recipientSession.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
-            } else {
-                logger.info("WebSocketHandler: Recipient session not found or closed: {}", recipient);
-            }
-        } else {
-            logger.warn("WebSocketHandler: Invalid recipient or assignment: sender={}, recipient={}", sender , recipient);
-        }
-        // Send to sender for confirmation
-        WebSocketSession senderSession = sessions.get(sender);
-        if (senderSession != null && senderSession.isOpen()) {
-            senderSession.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
-        } else {
-            logger.warn("WebSocketHandler: Sender session not found or closed: {}", sender);
-        }
-    }
-
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        String userId = sessions.entrySet().stream()
-                .filter(entry -> entry.getValue().equals(session))
-                .map(Map.Entry::getKey)
-                .findFirst()
-                .orElse(null);
+        outboundDelivery.close(session);
+        // Only the user's last session ending ends their chat
+        String userId = sessionRegistry.unregister(session);
         if (userId != null) {
-            sessions.remove(userId);
-            if (userId.startsWith("Guest_")) {
-                agentAssignmentService.freeGuest(userId);
-            } else {
-                agentAssignmentService.freeAgent(userId);
-            }
+            clusterRouter.userOffline(userId);
+            endChat(userId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.sessions.sweep-interval:30s}")
+    public void sweepSessions() {
+        sessionRegistry.sweep().forEach(userId -> {
+            clusterRouter.userOffline(userId);
+            endChat(userId);
+        });
+    }
+
+    private void endChat(String userId) {
+        if (userId.startsWith("Guest_")) {
+            agentAssignmentService.freeGuest(userId);
+        } else {
+            agentAssignmentService.freeAgent(userId);
         }
     }
 
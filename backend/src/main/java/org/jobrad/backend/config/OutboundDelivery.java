@@ -0,0 +1,98 @@
+package org.jobrad.backend.config;
+
+import jakarta.websocket.Session;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Outbound side of the raw WebSocket handler. Each session gets an {@link OutboundSession} stored in
+ * its attributes, and all of them share one sender pool, so inbound threads never wait on a peer's
+ * socket. Each blocking write is bounded by the send-time limit, so a client that stops reading fails
+ * its own send and is closed instead of holding a pool thread until TCP gives up.
+ */
+@Component
+public class OutboundDelivery implements DisposableBean {
+
+    private static final String OUTBOUND_ATTRIBUTE = OutboundSession.class.getName();
+    // Tomcat's per-session limit on a blocking send, 20 seconds unless set
+    static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final Executor executor;
+    private final long sendTimeLimitMillis;
+    private final int bufferSizeLimit;
+    private final OutboundSession.OverflowPolicy overflowPolicy;
+    private final OutboundSession.Listener listener;
+
+    public OutboundDelivery(@Value("${chat.outbound.send-time-limit:5s}") Duration sendTimeLimit,
+                            @Value("${chat.outbound.buffer-size-limit:512KB}") DataSize bufferSizeLimit,
+                            @Value("${chat.outbound.overflow-policy:DISCONNECT}") OutboundSession.OverflowPolicy overflowPolicy,
+                            @Value("${chat.outbound.pool-size:8}") int poolSize,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                            ChatMetrics chatMetrics) {
+        this.sendTimeLimitMillis = sendTimeLimit.toMillis();
+        this.bufferSizeLimit = (int) bufferSizeLimit.toBytes();
+        this.overflowPolicy = overflowPolicy;
+        this.listener = chatMetrics.outboundListener();
+        if (virtualThreads) {
+            // A blocked send parks its virtual thread instead of holding one of a few pool threads
+            SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("ws-outbound-");
+            virtual.setVirtualThreads(true);
+            this.executor = virtual;
+        } else {
+            ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+            pool.setCorePoolSize(poolSize);
+            pool.setMaxPoolSize(poolSize);
+            pool.setThreadNamePrefix("ws-outbound-");
+            pool.initialize();
+            this.executor = pool;
+        }
+    }
+
+    public OutboundSession open(WebSocketSession session) {
+        if (WebSocketSessionDecorator.unwrap(session) instanceof NativeWebSocketSession nativeSession) {
+            Session standard = nativeSession.getNativeSession(Session.class);
+            if (standard != null) {
+                standard.getUserProperties().put(BLOCKING_SEND_TIMEOUT, sendTimeLimitMillis);
+            }
+        }
+        OutboundSession outbound = new OutboundSession(session, executor, sendTimeLimitMillis, bufferSizeLimit, overflowPolicy, listener);
+        session.getAttributes().put(OUTBOUND_ATTRIBUTE, outbound);
+        return outbound;
+    }
+
+    public boolean send(WebSocketSession session, WebSocketMessage<?> message) {
+        OutboundSession outbound = (OutboundSession) session.getAttributes().get(OUTBOUND_ATTRIBUTE);
+        if (outbound == null) {
+            outbound = open(session);
+        }
+        return outbound.send(message);
+    }
+
+    public void close(WebSocketSession session) {
+        OutboundSession outbound = (OutboundSession) session.getAttributes().remove(OUTBOUND_ATTRIBUTE);
+        if (outbound != null) {
+            outbound.close();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        } else if (executor instanceof SimpleAsyncTaskExecutor virtual) {
+            virtual.close();
+        }
+    }
+}
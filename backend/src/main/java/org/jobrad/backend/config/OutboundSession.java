@@ -0,0 +1,209 @@
+package org.jobrad.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Asynchronous, bounded send buffer for one WebSocket session. Callers enqueue and return at once;
+ * at most one executor task drains the buffer at a time, so {@code sendMessage} is never called
+ * concurrently on the session. A session whose buffered bytes exceed the limit, or whose current
+ * send has been blocked longer than the send-time limit, is handled by its {@link OverflowPolicy}.
+ * A disconnect is carried out by the drain task between sends, never on the caller's thread, so the
+ * close frame neither waits for a stalled send nor runs concurrently with one.
+ * Deliveries and failures are reported to a {@link Listener}.
+ */
+public class OutboundSession {
+
+    public enum OverflowPolicy {
+        // Reject the new message and keep what is already queued
+        DROP,
+        // Close the session; the client reconnects and reloads history
+        DISCONNECT,
+        // Discard the oldest queued messages so the newest ones still go out
+        COALESCE
+    }
+
+    // Called on the thread that observed the event; implementations must be cheap and thread-safe
+    public interface Listener {
+
+        Listener NONE = new Listener() {
+        };
+
+        // A message was written, queuedNanos after it was accepted
+        default void delivered(long queuedNanos) {
+        }
+
+        default void dropped() {
+        }
+
+        default void sendFailed() {
+        }
+
+        default void disconnected() {
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(OutboundSession.class);
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final long sendTimeLimitNanos;
+    private final int bufferSizeLimit;
+    private final OverflowPolicy overflowPolicy;
+    private final Listener listener;
+    private final Queue<Pending> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferedBytes = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicReference<CloseStatus> pendingClose = new AtomicReference<>();
+    private volatile long sendStartNanos;
+    private volatile boolean closed;
+
+    public OutboundSession(WebSocketSession session, Executor executor, long sendTimeLimitMillis,
+                           int bufferSizeLimit, OverflowPolicy overflowPolicy) {
+        this(session, executor, sendTimeLimitMillis, bufferSizeLimit, overflowPolicy, Listener.NONE);
+    }
+
+    public OutboundSession(WebSocketSession session, Executor executor, long sendTimeLimitMillis,
+                           int bufferSizeLimit, OverflowPolicy overflowPolicy, Listener listener) {
+        this.session = session;
+        this.executor = executor;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMillis);
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.overflowPolicy = overflowPolicy;
+        this.listener = listener;
+    }
+
+    /**
+     * Queues a message for delivery. Returns false if the message was not accepted because the
+     * session is closed or overloaded.
+     */
+    public boolean send(WebSocketMessage<?> message) {
+        if (closed || !session.isOpen()) {
+            return false;
+        }
+        int size = message.getPayloadLength();
+        if (isOverloaded(size) && !handleOverflow(size)) {
+            dropped.incrementAndGet();
+            listener.dropped();
+            return false;
+        }
+        bufferedBytes.addAndGet(size);
+        buffer.offer(new Pending(message, System.nanoTime()));
+        scheduleDrain();
+        return true;
+    }
+
+    public void close() {
+        closed = true;
+        clear();
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    public int getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private boolean isOverloaded(int incomingSize) {
+        long started = sendStartNanos;
+        boolean stalled = started != 0 && System.nanoTime() - started > sendTimeLimitNanos;
+        return stalled || bufferedBytes.get() + incomingSize > bufferSizeLimit;
+    }
+
+    // Returns true if the message can still be queued
+    private boolean handleOverflow(int incomingSize) {
+        switch (overflowPolicy) {
+            case COALESCE -> {
+                Pending oldest;
+                while (bufferedBytes.get() + incomingSize > bufferSizeLimit && (oldest = buffer.poll()) != null) {
+                    bufferedBytes.addAndGet(-oldest.message().getPayloadLength());
+                    dropped.incrementAndGet();
+                    listener.dropped();
+                }
+                return true;
+            }
+            case DISCONNECT -> {
+                logger.warn("OutboundSession: Closing slow session {}, {} bytes buffered", session.getId(), bufferedBytes.get());
+                closed = true;
+                clear();
+                listener.disconnected();
+                pendingClose.set(CloseStatus.SESSION_NOT_RELIABLE);
+                scheduleDrain();
+                return false;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        do {
+            Pending pending;
+            while (!closed && (pending = buffer.poll()) != null) {
+                sendStartNanos = System.nanoTime();
+                try {
+                    session.sendMessage(pending.message());
+                    listener.delivered(System.nanoTime() - pending.queuedAt());
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("OutboundSession: Send failed for session {}: {}", session.getId(), e.getMessage());
+                    listener.sendFailed();
+                    close();
+                } finally {
+                    sendStartNanos = 0;
+                    bufferedBytes.addAndGet(-pending.message().getPayloadLength());
+                }
+            }
+            CloseStatus closeStatus = pendingClose.getAndSet(null);
+            if (closeStatus != null) {
+                closeSession(closeStatus);
+            }
+            draining.set(false);
+            // A message or close requested after the last check but before the flag was cleared must not be stranded
+        } while ((pendingClose.get() != null || !closed && !buffer.isEmpty()) && draining.compareAndSet(false, true));
+    }
+
+    private void closeSession(CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("OutboundSession: Failed to close session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private void clear() {
+        Pending pending;
+        while ((pending = buffer.poll()) != null) {
+            bufferedBytes.addAndGet(-pending.message().getPayloadLength());
+        }
+    }
+
+    private record Pending(WebSocketMessage<?> message, long queuedAt) {
+    }
+}
@@ -0,0 +1,28 @@
+package org.jobrad.backend.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Plain WebSocket sessions of {@link ChatWebSocketHandler}: JSON text frames, or CBOR binary frames
+ * for sessions that negotiated {@value ChatFrameCodec#CBOR_SUBPROTOCOL}. Frames are queued on each
+ * session's outbound queue and never block on the peer's socket.
+ */
+@Component
+public class RawChatTransport implements ChatTransport {
+
+    @Autowired
+    private WebSocketSessionRegistry sessionRegistry;
+
+    @Autowired
+    private OutboundDelivery outboundDelivery;
+
+    @Override
+    public void deliver(String userId, ChatFrame frame) {
+        for (WebSocketSession session : sessionRegistry.getSessions(userId)) {
+            outboundDelivery.send(session, ChatFrameCodec.CBOR_SUBPROTOCOL.equals(session.getAcceptedProtocol())
+                    ? frame.cbor() : frame.json());
+        }
+    }
+}
@@ -1,21 +1,33 @@
 package org.jobrad.backend.config;
 
 import org.jobrad.backend.repository.UserRepository;
+import org.jobrad.backend.security.CaffeineUserCache;
+import org.jobrad.backend.security.TokenAuthenticationFilter;
+import org.jobrad.backend.security.TokenService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.CachingUserDetailsService;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
@@ -25,17 +37,48 @@ public class SecurityConfig {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TokenService tokenService;
+
+    // The only endpoint taking a password; it trades HTTP basic credentials for a token pair
+    @Bean
+    @Order(1)
+    public SecurityFilterChain loginFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher("/api/auth/login")
+                .cors(cors -> cors.configurationSource(corsConfigurationSource()))
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(auth -> auth.anyRequest().authenticated())
+                .httpBasic(httpBasic -> {});
+        return http.build();
+    }
+
+    // Everything else is authenticated by bearer token, without a session, password check or database read
     @Bean
+    @Order(2)
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(csrf -> csrf.disable())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService), BasicAuthenticationFilter.class)
+                .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/auth/anonymous", "/chat/**").permitAll()
-                        .requestMatchers("/api/auth/login", "/api/messages", "/api/assignment/**").authenticated()
+                        .requestMatchers("/api/auth/anonymous", "/api/auth/refresh").permitAll()
+                        // Probes and the Prometheus scraper; neither exposes user data
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                        // Searches across every user's messages
+                        .requestMatchers("/api/messages/search").hasAnyRole("SUPPORT_AGENT", "ADMIN")
+                        // Conversations are looked up by id alone and the cache is node internals
+                        .requestMatchers("/api/messages/conversation/**", "/api/messages/cache/**").hasAnyRole("SUPPORT_AGENT", "ADMIN")
+                        // A guest may leave or join the queue itself; the controller checks the guest id
+                        .requestMatchers("/api/assignment/guest/**", "/api/assignment/queue/guest/**").authenticated()
+                        .requestMatchers("/api/assignment/**").hasAnyRole("SUPPORT_AGENT", "ADMIN")
+                        // WebSocket and SockJS handshakes; the session keeps the handshake's principal
+                        .requestMatchers("/api/messages", "/chat/**").authenticated()
                         .anyRequest().authenticated()
-                )
-                .httpBasic(httpBasic -> {});
+                );
         return http.build();
     }
 
@@ -52,8 +95,14 @@ public class SecurityConfig {
     }
 
     @Bean
-    public UserDetailsService userDetailsService() {
-        return username -> {
+    public UserCache userCache(@Value("${chat.auth.user-cache.max-users:1000}") long maxUsers,
+                               @Value("${chat.auth.user-cache.ttl:5m}") Duration ttl) {
+        return new CaffeineUserCache(maxUsers, ttl);
+    }
+
+    @Bean
+    public UserDetailsService userDetailsService(UserCache userCache) {
+        CachingUserDetailsService cachingUserDetailsService = new CachingUserDetailsService(username -> {
             org.jobrad.backend.entity.User user = userRepository.findByUsername(username);
             if (user == null) {
                 throw new UsernameNotFoundException("User not found: " + username);
@@ -62,7 +111,9 @@ public class SecurityConfig {
                     .password(user.getPassword())
                     .roles(user.getRole().name())
                     .build();
-        };
+        });
+        cachingUserDetailsService.setUserCache(userCache);
+        return cachingUserDetailsService;
     }
 
     @Bean
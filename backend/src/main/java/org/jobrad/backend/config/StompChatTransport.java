@@ -0,0 +1,37 @@
+package org.jobrad.backend.config;
+
+import org.jobrad.backend.cluster.ClusterRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * STOMP sessions: the JSON frame's bytes go to the broker as the body for the user's
+ * {@code /queue/messages} subscribers. The message is marked as already routed, so the broker
+ * channel does not forward it to other nodes a second time.
+ */
+@Component
+public class StompChatTransport implements ChatTransport {
+
+    // Lazy: the broker channel is built from the configuration that installs the cluster router
+    @Autowired
+    @Lazy
+    @Qualifier("brokerChannel")
+    private MessageChannel brokerChannel;
+
+    @Override
+    public void deliver(String userId, ChatFrame frame) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination("/user/" + userId + "/queue/messages");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setHeader(ClusterRouter.ROUTED_HEADER, Boolean.TRUE);
+        accessor.setLeaveMutable(true);
+        brokerChannel.send(MessageBuilder.createMessage(frame.json().asBytes(), accessor.getMessageHeaders()));
+    }
+}
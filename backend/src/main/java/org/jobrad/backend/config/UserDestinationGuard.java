@@ -0,0 +1,48 @@
+package org.jobrad.backend.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * Keeps STOMP clients to their own user destinations. The session's user is the principal
+ * authenticated at the handshake; a client may subscribe only to {@code /user/{itself}/...} and
+ * may send only to application destinations, so it can neither read another user's queue nor
+ * publish into one past the controllers. A rejected frame closes the session with an ERROR frame.
+ */
+@Component
+public class UserDestinationGuard implements ChannelInterceptor {
+
+    private static final String USER_PREFIX = "/user/";
+    private static final String APP_PREFIX = "/app/";
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        SimpMessageType type = accessor.getMessageType();
+        if (type != SimpMessageType.SUBSCRIBE && type != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        Principal user = accessor.getUser();
+        if (user == null) {
+            throw new MessageDeliveryException(message, "Not authenticated");
+        }
+        String destination = accessor.getDestination();
+        if (destination == null) {
+            throw new MessageDeliveryException(message, "No destination");
+        }
+        if (type == SimpMessageType.MESSAGE && !destination.startsWith(APP_PREFIX)) {
+            throw new MessageDeliveryException(message, "Cannot send to " + destination);
+        }
+        if (type == SimpMessageType.SUBSCRIBE && !destination.startsWith(USER_PREFIX + user.getName() + "/")) {
+            throw new MessageDeliveryException(message, "Cannot subscribe to " + destination);
+        }
+        return message;
+    }
+}
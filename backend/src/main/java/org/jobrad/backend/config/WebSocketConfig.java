@@ -1,18 +1,41 @@
 package org.jobrad.backend.config;
 
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
 import lombok.extern.slf4j.Slf4j;
+import org.jobrad.backend.cluster.ClusterRouter;
+import org.jobrad.backend.service.ConversationReaper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Enumeration;
+
 @Configuration
 @EnableWebSocketMessageBroker
 @EnableWebSocket
@@ -21,16 +44,99 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer, WebSoc
 
     private final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
 
+    @Value("${chat.outbound.send-time-limit:5s}")
+    private Duration sendTimeLimit;
+
+    @Value("${chat.outbound.buffer-size-limit:512KB}")
+    private DataSize sendBufferSizeLimit;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ClusterRouter clusterRouter;
+
+    @Autowired
+    private ConversationReaper conversationReaper;
+
+    @Autowired
+    private UserDestinationGuard userDestinationGuard;
+
+    @Value("${chat.stomp.heartbeat:10s}")
+    private Duration heartbeat;
+
+    // Lazy: the broker's scheduler is created by the configuration this class contributes to
+    @Autowired
+    @Lazy
+    @Qualifier("messageBrokerTaskScheduler")
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    // Resolved lazily: the handler depends on services that need the broker this class configures
+    @Autowired
+    private ObjectProvider<ChatWebSocketHandler> chatWebSocketHandler;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/user");
+        // Heartbeats both ways; a session that stops sending them is closed by the broker
+        config.enableSimpleBroker("/user")
+                .setHeartbeatValue(new long[]{heartbeat.toMillis(), heartbeat.toMillis()})
+                .setTaskScheduler(messageBrokerTaskScheduler);
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
+        // User messages are also forwarded to other nodes holding the user's sessions
+        config.configureBrokerChannel().interceptors(clusterRouter);
+        // Thread-per-message executors give no ordering, so keep each session's messages in send order
+        config.setPreservePublishOrder(virtualThreads);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        configureChannelExecutor(registration, "inbound");
+        // Inbound frames, heartbeats included, keep their user's conversations alive
+        registration.interceptors(userDestinationGuard, conversationReaper);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        configureChannelExecutor(registration, "outbound");
+    }
+
+    /**
+     * With virtual threads every channel message gets its own virtual thread, optionally capped by
+     * {@code chat.stomp.<channel>.max-concurrency}; otherwise the channel uses a platform thread pool
+     * sized by {@code chat.stomp.<channel>.*}. The defaults match Spring's own.
+     */
+    private void configureChannelExecutor(ChannelRegistration registration, String channel) {
+        String prefix = "chat.stomp." + channel + ".";
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("stomp-" + channel + "-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(environment.getProperty(prefix + "max-concurrency", Integer.class, -1));
+            registration.executor(executor);
+        } else {
+            int processors = Runtime.getRuntime().availableProcessors();
+            registration.taskExecutor()
+                    .corePoolSize(environment.getProperty(prefix + "core-pool-size", Integer.class, processors * 2))
+                    .maxPoolSize(environment.getProperty(prefix + "max-pool-size", Integer.class, Integer.MAX_VALUE))
+                    .queueCapacity(environment.getProperty(prefix + "queue-capacity", Integer.class, Integer.MAX_VALUE))
+                    .keepAliveSeconds((int) environment.getProperty(prefix + "keep-alive", Duration.class, Duration.ofSeconds(60)).toSeconds());
+        }
+    }
+
+    // STOMP sessions get the same slow-consumer limits as the raw handler's OutboundDelivery
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit((int) sendTimeLimit.toMillis());
+        registration.setSendBufferSizeLimit((int) sendBufferSizeLimit.toBytes());
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        // SockJS only uses sub-paths of /chat, so the raw handler's exact /chat mapping is consulted first
+        registry.setOrder(2);
         registry.addEndpoint("/chat")
                 .setAllowedOrigins("http://localhost:3000")
                 .addInterceptors(new HttpSessionHandshakeInterceptor() {
@@ -56,9 +162,49 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer, WebSoc
                 .withSockJS();
     }
 
+    /**
+     * Tomcat agrees to permessage-deflate whenever a client offers it, on both endpoints. Compression
+     * keeps a zlib window per session, so with {@code chat.websocket.permessage-deflate=false} the
+     * offer is hidden from the handshake instead.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "chat.websocket.permessage-deflate", havingValue = "false")
+    public FilterRegistrationBean<Filter> withoutPerMessageDeflate() {
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>((request, response, chain) ->
+                chain.doFilter(new WithoutExtensions((HttpServletRequest) request), response));
+        registration.addUrlPatterns("/chat", "/chat/*");
+        return registration;
+    }
+
+    private static class WithoutExtensions extends HttpServletRequestWrapper {
+
+        private static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+
+        WithoutExtensions(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !EXTENSIONS_HEADER.equalsIgnoreCase(name))
+                    .toList());
+        }
+    }
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(new ChatWebSocketHandler(), "/chat")
+        registry.addHandler(chatWebSocketHandler.getObject(), "/chat")
                 .setAllowedOrigins("http://localhost:3000")
                 .addInterceptors(new HttpSessionHandshakeInterceptor() {
                     @Override
@@ -0,0 +1,145 @@
+package org.jobrad.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bidirectional index of raw WebSocket sessions: userId to sessions (a user may have several tabs or
+ * devices) and sessionId to registration. Register, lookup and removal are constant time; only the
+ * periodic {@link #sweep()} walks all registrations.
+ */
+@Component
+public class WebSocketSessionRegistry {
+
+    private static final Set<WebSocketSession> NO_SESSIONS = Set.of();
+
+    private final Logger logger = LoggerFactory.getLogger(WebSocketSessionRegistry.class);
+
+    private final Map<String, Set<WebSocketSession>> sessionsByUser = new ConcurrentHashMap<>();
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    private final long idleTimeoutMillis;
+
+    public WebSocketSessionRegistry(@Value("${chat.sessions.idle-timeout:10m}") Duration idleTimeout) {
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+    }
+
+    // Returns true if this is the user's first session
+    public boolean register(String userId, WebSocketSession session) {
+        Registration previous = registrations.put(session.getId(), new Registration(userId, session));
+        if (previous == null) {
+            sessionCount.incrementAndGet();
+        } else if (!previous.userId.equals(userId)) {
+            // The session re-subscribed as someone else
+            removeFromUser(previous.userId, session);
+        }
+        boolean[] first = new boolean[1];
+        sessionsByUser.compute(userId, (id, sessions) -> {
+            first[0] = sessions == null;
+            Set<WebSocketSession> updated = sessions != null ? sessions : new CopyOnWriteArraySet<>();
+            updated.add(session);
+            return updated;
+        });
+        return first[0];
+    }
+
+    /**
+     * Removes the session and returns the user who owned it if that was their last session, so the
+     * caller can end the user's chat; returns null otherwise.
+     */
+    public String unregister(WebSocketSession session) {
+        Registration registration = registrations.remove(session.getId());
+        if (registration == null) {
+            return null;
+        }
+        sessionCount.decrementAndGet();
+        return removeFromUser(registration.userId, session) ? registration.userId : null;
+    }
+
+    public Set<WebSocketSession> getSessions(String userId) {
+        return sessionsByUser.getOrDefault(userId, NO_SESSIONS);
+    }
+
+    public String getUserId(WebSocketSession session) {
+        Registration registration = registrations.get(session.getId());
+        return registration != null ? registration.userId : null;
+    }
+
+    public void touch(WebSocketSession session) {
+        Registration registration = registrations.get(session.getId());
+        if (registration != null) {
+            registration.lastActivity = System.currentTimeMillis();
+        }
+    }
+
+    public int getSessionCount() {
+        return sessionCount.get();
+    }
+
+    public int getUserCount() {
+        return sessionsByUser.size();
+    }
+
+    /**
+     * Drops sessions whose transport is already gone and closes sessions that have been idle for longer
+     * than {@code chat.sessions.idle-timeout}. Closing an idle session runs the normal close callback;
+     * dead sessions never get one, so their users are returned when this removed their last session.
+     */
+    public List<String> sweep() {
+        long idleBefore = System.currentTimeMillis() - idleTimeoutMillis;
+        List<String> disconnectedUsers = new ArrayList<>();
+        for (Registration registration : registrations.values()) {
+            WebSocketSession session = registration.session;
+            if (!session.isOpen()) {
+                String userId = unregister(session);
+                if (userId != null) {
+                    disconnectedUsers.add(userId);
+                }
+            } else if (registration.lastActivity < idleBefore) {
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE.withReason("Idle timeout"));
+                } catch (IOException e) {
+                    logger.warn("WebSocketSessionRegistry: Failed to close idle session {}: {}", session.getId(), e.getMessage());
+                }
+            }
+        }
+        logger.debug("WebSocketSessionRegistry: {} sessions for {} users", getSessionCount(), getUserCount());
+        return disconnectedUsers;
+    }
+
+    // Returns true if this removed the user's last session
+    private boolean removeFromUser(String userId, WebSocketSession session) {
+        boolean[] last = new boolean[1];
+        sessionsByUser.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(session);
+            last[0] = sessions.isEmpty();
+            return last[0] ? null : sessions;
+        });
+        return last[0];
+    }
+
+    private static final class Registration {
+        private final String userId;
+        private final WebSocketSession session;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        private Registration(String userId, WebSocketSession session) {
+            this.userId = userId;
+            this.session = session;
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package org.jobrad.backend.controller;
 
 import org.jobrad.backend.dto.AssignmentResponse;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.security.Principals;
 import org.jobrad.backend.service.AgentAssignmentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Objects;
+import java.security.Principal;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/assignment")
@@ -16,26 +20,41 @@ public class AssignmentController {
     private AgentAssignmentService agentAssignmentService;
 
     @GetMapping("/{agentId}")
-    public ResponseEntity<?> getAssignedGuest(@PathVariable String agentId) {
-        String guestId = agentAssignmentService.getAssignedGuest(agentId);
-        return ResponseEntity.ok(new AssignmentResponse(Objects.requireNonNullElse(guestId, "")));
+    public ResponseEntity<?> getAssignedGuest(@PathVariable String agentId, Principal principal) {
+        if (!Principals.mayActFor(principal, agentId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        Set<String> guestIds = agentAssignmentService.getAssignedGuests(agentId);
+        String guestId = guestIds.stream().findFirst().orElse("");
+        return ResponseEntity.ok(new AssignmentResponse(guestId, guestIds));
     }
 
     @PostMapping("/free/{agentId}")
-    public ResponseEntity<?> freeAgent(@PathVariable String agentId) {
+    public ResponseEntity<?> freeAgent(@PathVariable String agentId, Principal principal) {
+        if (!Principals.mayActFor(principal, agentId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         agentAssignmentService.freeAgent(agentId);
         return ResponseEntity.ok("Agent freed");
     }
 
     @PostMapping("/guest/{guestId}")
-    public ResponseEntity<?> getAssignedAgent(@PathVariable String guestId) {
+    public ResponseEntity<?> getAssignedAgent(@PathVariable String guestId, Principal principal) {
+        if (!Principals.mayActFor(principal, guestId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         agentAssignmentService.freeGuest(guestId);
         return ResponseEntity.ok("Agent freed");
     }
 
     @PostMapping("/queue/guest/{guestId}")
-    public ResponseEntity<?> queueGuest(@PathVariable String guestId) {
-        agentAssignmentService.queueGuest(guestId);
+    public ResponseEntity<?> queueGuest(@PathVariable String guestId, Principal principal) {
+        if (!Principals.mayActFor(principal, guestId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        // An agent queueing a guest on its behalf does not know its role
+        agentAssignmentService.queueGuest(guestId, principal.getName().equals(guestId)
+                ? Principals.roleOf(principal) : UserRole.GUEST);
         return ResponseEntity.ok("Guest queued");
     }
 }
\ No newline at end of file
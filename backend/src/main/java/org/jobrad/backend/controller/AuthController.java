@@ -1,15 +1,31 @@
 package org.jobrad.backend.controller;
 
 import org.jobrad.backend.dto.AnonymousResponse;
+import org.jobrad.backend.dto.RefreshRequest;
+import org.jobrad.backend.dto.TokenResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.ratelimit.RateLimiter;
+import org.jobrad.backend.security.Principals;
+import org.jobrad.backend.security.TokenService;
 import org.jobrad.backend.service.AgentAssignmentService;
 import org.jobrad.backend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -20,20 +36,59 @@ public class AuthController {
     @Autowired
     private AgentAssignmentService agentAssignmentService;
 
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
     @PostMapping("/login")
-    public ResponseEntity<String> login() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return ResponseEntity.ok("Logged in as " + username);
+    public ResponseEntity<TokenResponse> login() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return ResponseEntity.ok(tokenService.issue(authentication.getName(), Principals.roleOf(authentication.getAuthorities()), false));
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequest request) {
+        TokenService.AuthToken token = request.getRefreshToken() != null
+                ? tokenService.verify(request.getRefreshToken(), TokenService.REFRESH) : null;
+        if (token == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid or expired refresh token");
+        }
+        if (token.guest()) {
+            return ResponseEntity.ok(tokenService.issue(token.username(), token.role(), true));
+        }
+        // Accounts may have been removed or changed role since login
+        try {
+            UserDetails user = userDetailsService.loadUserByUsername(token.username());
+            return ResponseEntity.ok(tokenService.issue(user.getUsername(), Principals.roleOf(user.getAuthorities()), false));
+        } catch (UsernameNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid or expired refresh token");
+        }
     }
 
     @PostMapping("/anonymous")
-    public ResponseEntity<?> createAnonymousUser() {
+    public ResponseEntity<?> createAnonymousUser(HttpServletRequest request) {
+        // The client's address; set server.forward-headers-strategy behind a proxy
+        Duration wait = rateLimiter.trySignup(request.getRemoteAddr());
+        if (!wait.isZero()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(wait.toSeconds() + 1))
+                    .body("Too many sign-ups, try again later");
+        }
         String guestId = userService.createAnonymousCustomer();
-        String agentId = agentAssignmentService.assignAgent(guestId);
+        // Customers sign in with their account; an anonymous visitor queues behind them as a guest
+        TokenResponse tokens = tokenService.issue(guestId, UserRole.GUEST, true);
+        String agentId = agentAssignmentService.assignAgent(guestId, UserRole.GUEST);
+        AnonymousResponse response = new AnonymousResponse(guestId, agentId,
+                tokens.getAccessToken(), tokens.getRefreshToken(), tokens.getExpiresIn());
         if (agentId == null) {
-            return ResponseEntity.status(503).body("No agents available, you are in the queue");
+            // Queued; the guest connects with its token and is told when an agent takes it
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
         }
-        return ResponseEntity.ok(new AnonymousResponse(guestId, agentId));
+        return ResponseEntity.ok(response);
     }
-
-}
\ No newline at end of file
+}
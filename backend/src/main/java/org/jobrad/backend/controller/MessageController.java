@@ -1,13 +1,27 @@
 package org.jobrad.backend.controller;
 
+import org.jobrad.backend.dto.MessageCacheStatsResponse;
+import org.jobrad.backend.dto.MessageCursor;
 import org.jobrad.backend.dto.MessageRequest;
-import org.jobrad.backend.dto.MessageResponse;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.jobrad.backend.ratelimit.RateLimiter;
+import org.jobrad.backend.security.Principals;
+import org.jobrad.backend.service.ChatPipeline;
 import org.jobrad.backend.service.MessageService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.io.IOException;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -16,13 +30,102 @@ public class MessageController {
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private ChatPipeline chatPipeline;
+
+    @Value("${chat.history.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${chat.history.max-page-size:200}")
+    private int maxPageSize;
+
     @GetMapping
-    public List<MessageResponse> getMessages(@RequestParam String userId) {
-        return messageService.getMessagesForUser(userId);
+    public ResponseEntity<?> getMessages(@RequestParam String userId,
+                                         @RequestParam(required = false) String after,
+                                         @RequestParam(required = false) String before,
+                                         @RequestParam(required = false) Integer limit,
+                                         Principal principal) {
+        if (!Principals.mayActFor(principal, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (after != null && before != null) {
+            return ResponseEntity.badRequest().body("Use either after or before, not both");
+        }
+        MessageCursor afterCursor;
+        MessageCursor beforeCursor;
+        try {
+            afterCursor = MessageCursor.decode(after);
+            beforeCursor = MessageCursor.decode(before);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(messageService.getMessagesForUser(userId, afterCursor, beforeCursor, pageSize(limit)));
+    }
+
+    @GetMapping("/conversation/{conversationId}")
+    public ResponseEntity<?> getConversationMessages(@PathVariable UUID conversationId,
+                                                     @RequestParam(required = false) String after,
+                                                     @RequestParam(required = false) String before,
+                                                     @RequestParam(required = false) Integer limit) {
+        if (after != null && before != null) {
+            return ResponseEntity.badRequest().body("Use either after or before, not both");
+        }
+        MessageCursor afterCursor;
+        MessageCursor beforeCursor;
+        try {
+            afterCursor = MessageCursor.decode(after);
+            beforeCursor = MessageCursor.decode(before);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(messageService.getMessagesForConversation(conversationId, afterCursor, beforeCursor, pageSize(limit)));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchMessages(@RequestParam String q,
+                                            @RequestParam(required = false) String userId,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                            @RequestParam(required = false) String before,
+                                            @RequestParam(required = false) Integer limit) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body("Query must not be blank");
+        }
+        MessageCursor beforeCursor;
+        try {
+            beforeCursor = MessageCursor.decode(before);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(messageService.searchMessages(q, userId, from, to, beforeCursor, pageSize(limit)));
+    }
+
+    @GetMapping("/cache/stats")
+    public MessageCacheStatsResponse getCacheStats() {
+        return messageService.getCacheStats();
+    }
+
+    private int pageSize(Integer limit) {
+        return Math.min(Math.max(limit != null ? limit : defaultPageSize, 1), maxPageSize);
     }
 
     @MessageMapping("/chat")
-    public void sendMessage(MessageRequest message) {
-        messageService.saveAndSendMessage(message);
+    public void sendMessage(MessageRequest request, Principal principal) throws IOException {
+        long received = System.nanoTime();
+        UserRole role = Principals.roleOf(principal);
+        // Over the limit: dropped, and counted by the limiter
+        if (!rateLimiter.tryMessage(principal.getName(), role)) {
+            return;
+        }
+        // The session's user, authenticated at the handshake, is the sender whatever the message says
+        chatPipeline.send(Message.builder()
+                .content(request.getContent())
+                .recipient(request.getRecipient())
+                .sender(principal.getName())
+                .senderType(role)
+                .build(), ChatMetrics.STOMP, received);
     }
 }
\ No newline at end of file
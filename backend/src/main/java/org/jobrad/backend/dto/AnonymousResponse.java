@@ -11,4 +11,7 @@ import lombok.Setter;
 public class AnonymousResponse {
     private final String guestId;
     private final String agentId;
-}
\ No newline at end of file
+    private final String accessToken;
+    private final String refreshToken;
+    private final long expiresIn;
+}
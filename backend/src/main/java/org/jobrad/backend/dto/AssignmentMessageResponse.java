@@ -3,8 +3,30 @@ package org.jobrad.backend.dto;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.time.Duration;
+import java.util.UUID;
+
 @Getter
 @AllArgsConstructor
 public class AssignmentMessageResponse {
     private final String agentId;
+
+    private final UUID conversationId;
+
+    // Set while the guest is waiting: 1 for the next guest served
+    private final Integer queuePosition;
+
+    private final Long estimatedWaitSeconds;
+
+    public AssignmentMessageResponse(String agentId, UUID conversationId) {
+        this(agentId, conversationId, null, null);
+    }
+
+    public AssignmentMessageResponse(String agentId) {
+        this(agentId, null);
+    }
+
+    public static AssignmentMessageResponse queued(int position, Duration estimatedWait) {
+        return new AssignmentMessageResponse(null, null, position, estimatedWait.toSeconds());
+    }
 }
\ No newline at end of file
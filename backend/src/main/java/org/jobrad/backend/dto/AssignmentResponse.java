@@ -3,9 +3,13 @@ package org.jobrad.backend.dto;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.util.Set;
+
 @Getter
 @AllArgsConstructor
 public class AssignmentResponse {
     private final String guestId;
 
+    private final Set<String> guestIds;
+
 }
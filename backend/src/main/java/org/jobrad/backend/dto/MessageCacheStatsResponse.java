@@ -0,0 +1,23 @@
+package org.jobrad.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class MessageCacheStatsResponse {
+
+    private final long cachedUsers;
+
+    private final long hits;
+
+    private final long misses;
+
+    private final double hitRate;
+
+    private final long evictions;
+
+    // Cached reads that reached past the cached window and went to the database
+    private final long databaseFallbacks;
+
+}
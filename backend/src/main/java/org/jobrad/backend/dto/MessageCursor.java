@@ -0,0 +1,43 @@
+package org.jobrad.backend.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Keyset position in a message history: the (timestamp, id) of a message, encoded as an opaque
+ * URL-safe token for clients.
+ */
+public record MessageCursor(LocalDateTime timestamp, long id) {
+
+    public static final Comparator<MessageCursor> ORDER = Comparator
+            .comparing(MessageCursor::timestamp)
+            .thenComparingLong(MessageCursor::id);
+
+    // Sorts after every real message, used to read the newest page
+    public static final MessageCursor LATEST = new MessageCursor(LocalDateTime.of(9999, 12, 31, 23, 59), Long.MAX_VALUE);
+
+    // Sorts before every real message
+    public static final MessageCursor EARLIEST = new MessageCursor(LocalDateTime.of(1970, 1, 1, 0, 0), Long.MIN_VALUE);
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MessageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new MessageCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid message cursor: " + token, e);
+        }
+    }
+}
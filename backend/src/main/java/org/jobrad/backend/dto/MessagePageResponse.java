@@ -0,0 +1,24 @@
+package org.jobrad.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class MessagePageResponse {
+
+    // Oldest first
+    private final List<MessageResponse> messages;
+
+    // Pass as "before" to load older history
+    private final String beforeCursor;
+
+    // Pass as "after" to load only what arrived since this page
+    private final String afterCursor;
+
+    // More messages exist in the direction that was requested
+    private final boolean hasMore;
+
+}
@@ -4,6 +4,7 @@ import lombok.*;
 import org.jobrad.backend.entity.UserRole;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Getter
 @Setter
@@ -23,4 +24,6 @@ public class MessageRequest {
 
     private LocalDateTime timestamp;
 
+    private UUID conversationId;
+
 }
\ No newline at end of file
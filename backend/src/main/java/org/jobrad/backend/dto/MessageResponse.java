@@ -1,14 +1,19 @@
 package org.jobrad.backend.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Builder
 @Getter
 @AllArgsConstructor
 public class MessageResponse {
 
+    // Snowflake ids exceed 2^53, which JavaScript numbers cannot hold exactly
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
 
     private String content;
@@ -21,4 +26,6 @@ public class MessageResponse {
 
     private LocalDateTime timestamp;
 
+    private UUID conversationId;
+
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package org.jobrad.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class MessageSearchResponse {
+
+    // Newest first
+    private final List<MessageResponse> messages;
+
+    // Pass as "before" to load older matches
+    private final String nextCursor;
+
+    private final boolean hasMore;
+
+}
@@ -0,0 +1,14 @@
+package org.jobrad.backend.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class RefreshRequest {
+
+    private String refreshToken;
+
+}
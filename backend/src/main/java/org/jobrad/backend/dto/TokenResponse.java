@@ -0,0 +1,16 @@
+package org.jobrad.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TokenResponse {
+    private final String username;
+    private final String role;
+    // Sent as "Authorization: Bearer <accessToken>"
+    private final String accessToken;
+    // Exchanged for a new pair at /api/auth/refresh once the access token has expired
+    private final String refreshToken;
+    private final long expiresIn;
+}
@@ -0,0 +1,39 @@
+package org.jobrad.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// A live guest-to-agent binding for the JDBC assignment store; the key makes a guest's binding unique
+@Data
+@Builder
+@Entity
+@Table(name = "active_assignment", indexes = {
+        @Index(name = "idx_active_assignment_agent", columnList = "agent_id")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActiveAssignment {
+
+    @Id
+    @Column(name = "guest_id")
+    private String guestId;
+
+    @Column(name = "agent_id", nullable = false)
+    private String agentId;
+
+    @Column(name = "conversation_id", nullable = false)
+    private UUID conversationId;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+}
@@ -0,0 +1,34 @@
+package org.jobrad.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Agent capacity for the JDBC assignment store
+@Data
+@Builder
+@Entity
+@Table(name = "agent_slot")
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgentSlot {
+
+    @Id
+    @Column(name = "agent_id")
+    private String agentId;
+
+    @Column(nullable = false)
+    private int capacity;
+
+    @Column(nullable = false)
+    private int active;
+
+    // Registration order, the tie-breaker between equally loaded agents
+    @Column(nullable = false)
+    private long seq;
+}
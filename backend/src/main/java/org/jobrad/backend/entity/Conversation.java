@@ -0,0 +1,42 @@
+package org.jobrad.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@Entity
+@Table(name = "conversation", indexes = {
+        @Index(name = "idx_conversation_guest", columnList = "guest_id"),
+        @Index(name = "idx_conversation_agent", columnList = "agent_id")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+public class Conversation {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "guest_id", nullable = false)
+    private String guestId;
+
+    @Column(name = "agent_id", nullable = false)
+    private String agentId;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    // Null while the conversation is active
+    @Column(name = "ended_at")
+    private LocalDateTime endedAt;
+}
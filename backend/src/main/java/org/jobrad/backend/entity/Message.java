@@ -1,20 +1,28 @@
 package org.jobrad.backend.entity;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "MESSAGE")
+@Table(name = "MESSAGE", indexes = {
+        @Index(name = "idx_message_sender_timestamp", columnList = "sender, timestamp, id"),
+        @Index(name = "idx_message_recipient_timestamp", columnList = "recipient, timestamp, id"),
+        @Index(name = "idx_message_conversation", columnList = "conversation_id, id")
+})
 public class Message {
 
+    // Assigned by MessageIdGenerator at ingest so inserts can be batched; a string in JSON, as it exceeds 2^53
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
 
     @Column(nullable = false)
@@ -33,4 +41,8 @@ public class Message {
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
+    // Null when the sender had no active conversation with the recipient
+    @Column(name = "conversation_id")
+    private UUID conversationId;
+
 }
\ No newline at end of file
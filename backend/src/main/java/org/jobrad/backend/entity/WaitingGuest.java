@@ -0,0 +1,31 @@
+package org.jobrad.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A guest waiting for an agent, for the JDBC assignment store
+@Data
+@Builder
+@Entity
+@Table(name = "waiting_guest", indexes = {
+        @Index(name = "idx_waiting_guest_sort", columnList = "sort_key, guest_id")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitingGuest {
+
+    @Id
+    @Column(name = "guest_id")
+    private String guestId;
+
+    // Guests are served in ascending order
+    @Column(name = "sort_key", nullable = false)
+    private long sortKey;
+}
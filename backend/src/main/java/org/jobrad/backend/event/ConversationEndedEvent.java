@@ -0,0 +1,9 @@
+package org.jobrad.backend.event;
+
+import org.jobrad.backend.entity.Conversation;
+
+/**
+ * Published by the assignment service once a guest and agent are no longer assigned to each other.
+ */
+public record ConversationEndedEvent(Conversation conversation) {
+}
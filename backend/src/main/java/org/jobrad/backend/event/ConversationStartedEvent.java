@@ -0,0 +1,10 @@
+package org.jobrad.backend.event;
+
+import org.jobrad.backend.entity.Conversation;
+
+/**
+ * Published by the assignment service when a guest is assigned to an agent, and for each
+ * conversation still active when the application starts.
+ */
+public record ConversationStartedEvent(Conversation conversation) {
+}
@@ -0,0 +1,80 @@
+package org.jobrad.backend.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.jobrad.backend.cluster.ClusterRouter;
+import org.jobrad.backend.config.WebSocketSessionRegistry;
+import org.jobrad.backend.ratelimit.RateLimiter;
+import org.jobrad.backend.service.AssignmentStateStore;
+import org.jobrad.backend.service.ConversationReaper;
+import org.jobrad.backend.service.GuestAccounts;
+import org.jobrad.backend.service.MessagePersistenceQueue;
+import org.springframework.stereotype.Component;
+
+/**
+ * Saturation gauges. They are read only when the registry is scraped, so the components they
+ * observe pay nothing for them between scrapes.
+ */
+@Component
+public class ChatMeterBinder implements MeterBinder {
+
+    private final AssignmentStateStore assignmentStore;
+    private final WebSocketSessionRegistry sessionRegistry;
+    private final ClusterRouter clusterRouter;
+    private final MessagePersistenceQueue messagePersistenceQueue;
+    private final ConversationReaper conversationReaper;
+    private final RateLimiter rateLimiter;
+    private final GuestAccounts guestAccounts;
+
+    public ChatMeterBinder(AssignmentStateStore assignmentStore,
+                           WebSocketSessionRegistry sessionRegistry,
+                           ClusterRouter clusterRouter,
+                           MessagePersistenceQueue messagePersistenceQueue,
+                           ConversationReaper conversationReaper,
+                           RateLimiter rateLimiter,
+                           GuestAccounts guestAccounts) {
+        this.assignmentStore = assignmentStore;
+        this.sessionRegistry = sessionRegistry;
+        this.clusterRouter = clusterRouter;
+        this.messagePersistenceQueue = messagePersistenceQueue;
+        this.conversationReaper = conversationReaper;
+        this.rateLimiter = rateLimiter;
+        this.guestAccounts = guestAccounts;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("chat.assignment.queue.depth", assignmentStore, AssignmentStateStore::waitingCount)
+                .description("Guests waiting for an agent")
+                .register(registry);
+        Gauge.builder("chat.assignment.slots", assignmentStore, AssignmentStateStore::capacity)
+                .description("Agent chat slots")
+                .tag("state", "total")
+                .register(registry);
+        Gauge.builder("chat.assignment.slots", assignmentStore, AssignmentStateStore::activeCount)
+                .description("Agent chat slots")
+                .tag("state", "busy")
+                .register(registry);
+        Gauge.builder("chat.sessions.active", sessionRegistry, WebSocketSessionRegistry::getSessionCount)
+                .description("Open WebSocket sessions on this node")
+                .tag("transport", ChatMetrics.RAW)
+                .register(registry);
+        Gauge.builder("chat.sessions.active", clusterRouter, ClusterRouter::getStompSessionCount)
+                .description("Open WebSocket sessions on this node")
+                .tag("transport", ChatMetrics.STOMP)
+                .register(registry);
+        Gauge.builder("chat.message.persist.pending", messagePersistenceQueue, MessagePersistenceQueue::pending)
+                .description("Delivered messages waiting to be stored")
+                .register(registry);
+        Gauge.builder("chat.conversations.tracked", conversationReaper, ConversationReaper::getTrackedCount)
+                .description("Active conversations watched for idleness on this node")
+                .register(registry);
+        Gauge.builder("chat.ratelimit.clients", rateLimiter, RateLimiter::getTrackedCount)
+                .description("Client buckets held by the rate limiter on this node")
+                .register(registry);
+        Gauge.builder("chat.guests.pending", guestAccounts, GuestAccounts::pending)
+                .description("Guests that have written but are not stored as users yet")
+                .register(registry);
+    }
+}
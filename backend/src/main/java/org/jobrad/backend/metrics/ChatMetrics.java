@@ -0,0 +1,166 @@
+package org.jobrad.backend.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jobrad.backend.config.OutboundSession;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and counters on the message and assignment hot paths. Every meter is registered once up
+ * front, so a recording is a clock read and a lock-free update with no lookup or allocation.
+ * Latency timers publish histogram buckets, from which Prometheus computes percentiles across
+ * nodes. Gauges are bound separately by {@link ChatMeterBinder}.
+ */
+@Component
+public class ChatMetrics {
+
+    public static final String RAW = "raw";
+    public static final String STOMP = "stomp";
+    public static final String SIGNUP = "signup";
+    public static final String GUEST_MESSAGE = "guest_message";
+    public static final String AGENT_MESSAGE = "agent_message";
+
+    private final Timer rawIngest;
+    private final Timer stompIngest;
+    private final Timer outboundDelivery;
+    private final Counter outboundDropped;
+    private final Counter outboundSendFailed;
+    private final Counter outboundDisconnected;
+    private final Timer persistBatch;
+    private final Counter persistFailed;
+    private final Timer assignmentWait;
+    private final Counter reapedIdle;
+    private final Counter reapedGuestGone;
+    private final Counter reapedAgentGone;
+    private final Counter signupsRejected;
+    private final Counter guestMessagesRejected;
+    private final Counter agentMessagesRejected;
+    private final OutboundSession.Listener outboundListener;
+
+    public ChatMetrics(MeterRegistry registry) {
+        this.rawIngest = ingestTimer(registry, RAW);
+        this.stompIngest = ingestTimer(registry, STOMP);
+        this.outboundDelivery = Timer.builder("chat.outbound.delivery")
+                .description("Time from queueing a raw frame for a session to the socket write completing")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.outboundDropped = outboundFailure(registry, "dropped");
+        this.outboundSendFailed = outboundFailure(registry, "send_error");
+        this.outboundDisconnected = Counter.builder("chat.outbound.disconnects")
+                .description("Raw sessions closed for falling behind")
+                .register(registry);
+        this.persistBatch = Timer.builder("chat.message.persist")
+                .description("Time to insert one batch of messages")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.persistFailed = Counter.builder("chat.message.persist.failures")
+                .description("Messages that could not be stored")
+                .register(registry);
+        this.assignmentWait = Timer.builder("chat.assignment.wait")
+                .description("Time a guest waited in the queue before being assigned")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofHours(1))
+                .register(registry);
+        this.reapedIdle = reaped(registry, "idle");
+        this.reapedGuestGone = reaped(registry, "guest_gone");
+        this.reapedAgentGone = reaped(registry, "agent_gone");
+        this.signupsRejected = rateLimited(registry, SIGNUP);
+        this.guestMessagesRejected = rateLimited(registry, GUEST_MESSAGE);
+        this.agentMessagesRejected = rateLimited(registry, AGENT_MESSAGE);
+        this.outboundListener = new OutboundSession.Listener() {
+            @Override
+            public void delivered(long queuedNanos) {
+                outboundDelivery.record(queuedNanos, TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public void dropped() {
+                outboundDropped.increment();
+            }
+
+            @Override
+            public void sendFailed() {
+                outboundSendFailed.increment();
+            }
+
+            @Override
+            public void disconnected() {
+                outboundDisconnected.increment();
+            }
+        };
+    }
+
+    // From receiving a message to handing it to every recipient's outbound path
+    public void recordIngest(String transport, long startNanos) {
+        (RAW.equals(transport) ? rawIngest : stompIngest).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPersist(long startNanos) {
+        persistBatch.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void persistFailed() {
+        persistFailed.increment();
+    }
+
+    public void recordAssignmentWait(Duration wait) {
+        assignmentWait.record(wait);
+    }
+
+    public void reapedIdle() {
+        reapedIdle.increment();
+    }
+
+    public void reapedGuestGone() {
+        reapedGuestGone.increment();
+    }
+
+    public void reapedAgentGone() {
+        reapedAgentGone.increment();
+    }
+
+    public void rateLimited(String limit) {
+        switch (limit) {
+            case SIGNUP -> signupsRejected.increment();
+            case GUEST_MESSAGE -> guestMessagesRejected.increment();
+            default -> agentMessagesRejected.increment();
+        }
+    }
+
+    public OutboundSession.Listener outboundListener() {
+        return outboundListener;
+    }
+
+    private static Timer ingestTimer(MeterRegistry registry, String transport) {
+        return Timer.builder("chat.message.ingest")
+                .description("Time from receiving a chat message to queueing it for delivery")
+                .tag("transport", transport)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Counter outboundFailure(MeterRegistry registry, String reason) {
+        return Counter.builder("chat.outbound.failures")
+                .description("Raw frames that were not delivered")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static Counter reaped(MeterRegistry registry, String reason) {
+        return Counter.builder("chat.conversations.reaped")
+                .description("Conversations ended by the reaper")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static Counter rateLimited(MeterRegistry registry, String limit) {
+        return Counter.builder("chat.ratelimit.rejected")
+                .description("Sign-ups and messages refused for exceeding their rate limit")
+                .tag("limit", limit)
+                .register(registry);
+    }
+}
@@ -0,0 +1,62 @@
+package org.jobrad.backend.ratelimit;
+
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Flood control in front of anonymous sign-up, keyed by client IP, and chat message ingress, keyed
+ * by the sending user on either transport. Guests and agents have separate limits, since an agent
+ * answers several conversations at once. Every limit is a burst of {@code capacity} refilled at one
+ * token per {@code refill-interval}; each keeps at most {@code chat.ratelimit.max-keys} clients.
+ */
+@Component
+public class RateLimiter {
+
+    private final TokenBuckets signups;
+    private final TokenBuckets guestMessages;
+    private final TokenBuckets agentMessages;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    public RateLimiter(@Value("${chat.ratelimit.signup.capacity:10}") long signupCapacity,
+                       @Value("${chat.ratelimit.signup.refill-interval:6s}") Duration signupRefill,
+                       @Value("${chat.ratelimit.guest-message.capacity:20}") long guestMessageCapacity,
+                       @Value("${chat.ratelimit.guest-message.refill-interval:200ms}") Duration guestMessageRefill,
+                       @Value("${chat.ratelimit.agent-message.capacity:100}") long agentMessageCapacity,
+                       @Value("${chat.ratelimit.agent-message.refill-interval:20ms}") Duration agentMessageRefill,
+                       @Value("${chat.ratelimit.max-keys:100000}") int maxKeys,
+                       @Value("${chat.ratelimit.stripes:64}") int stripes) {
+        this.signups = new TokenBuckets(signupCapacity, signupRefill, maxKeys, stripes);
+        this.guestMessages = new TokenBuckets(guestMessageCapacity, guestMessageRefill, maxKeys, stripes);
+        this.agentMessages = new TokenBuckets(agentMessageCapacity, agentMessageRefill, maxKeys, stripes);
+    }
+
+    // 0 if the address may sign up now, otherwise how long it has to wait
+    public Duration trySignup(String remoteAddress) {
+        long wait = signups.tryAcquire(remoteAddress, System.nanoTime());
+        if (wait == 0) {
+            return Duration.ZERO;
+        }
+        chatMetrics.rateLimited(ChatMetrics.SIGNUP);
+        return Duration.ofNanos(wait);
+    }
+
+    public boolean tryMessage(String userId, UserRole role) {
+        boolean guest = role == UserRole.GUEST || role == UserRole.CUSTOMER;
+        if ((guest ? guestMessages : agentMessages).tryAcquire(userId, System.nanoTime()) == 0) {
+            return true;
+        }
+        chatMetrics.rateLimited(guest ? ChatMetrics.GUEST_MESSAGE : ChatMetrics.AGENT_MESSAGE);
+        return false;
+    }
+
+    public int getTrackedCount() {
+        return signups.size() + guestMessages.size() + agentMessages.size();
+    }
+}
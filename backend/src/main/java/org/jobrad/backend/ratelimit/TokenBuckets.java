@@ -0,0 +1,89 @@
+package org.jobrad.backend.ratelimit;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token buckets keyed by client, all with the same capacity and refill interval. A bucket is kept as
+ * the single instant at which it will be full again, so taking a token is one comparison and one
+ * addition. Keys are spread over lock stripes, each an access-ordered map bounded to its share of
+ * {@code maxKeys}: a full stripe forgets its least recently used key, whose bucket has most likely
+ * refilled by then anyway.
+ */
+public class TokenBuckets {
+
+    private final long nanosPerToken;
+    // How far ahead of now a bucket may be full again while it still holds a token
+    private final long burstNanos;
+    private final Stripe[] stripes;
+
+    public TokenBuckets(long capacity, Duration refillInterval, int maxKeys, int stripeCount) {
+        if (capacity < 1 || refillInterval.isNegative() || refillInterval.isZero()) {
+            throw new IllegalArgumentException("A bucket needs a capacity of at least 1 and a positive refill interval");
+        }
+        this.nanosPerToken = refillInterval.toNanos();
+        this.burstNanos = capacity > Long.MAX_VALUE / nanosPerToken ? Long.MAX_VALUE : capacity * nanosPerToken;
+        // A power of two, so a stripe is picked by masking the key's hash
+        int count = Integer.highestOneBit(Math.max(1, Math.min(stripeCount, maxKeys)));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(Math.max(1, maxKeys / count));
+        }
+    }
+
+    /**
+     * Takes a token from the key's bucket. Returns 0 if one was taken, otherwise the nanoseconds
+     * until the next token is due.
+     */
+    public long tryAcquire(String key, long nowNanos) {
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+        synchronized (stripe) {
+            Bucket bucket = stripe.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(nowNanos);
+                stripe.put(key, bucket);
+            }
+            long fullAt = Math.max(bucket.fullAt, nowNanos) + nanosPerToken;
+            long overdraft = fullAt - nowNanos - burstNanos;
+            if (overdraft > 0) {
+                return overdraft;
+            }
+            bucket.fullAt = fullAt;
+            return 0;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private static final class Bucket {
+        private long fullAt;
+
+        private Bucket(long fullAt) {
+            this.fullAt = fullAt;
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, Bucket> {
+        private final int maxKeys;
+
+        private Stripe(int maxKeys) {
+            super(16, 0.75f, true);
+            this.maxKeys = maxKeys;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            return size() > maxKeys;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.jobrad.backend.repository;
+
+import org.jobrad.backend.entity.Conversation;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface ConversationRepository extends JpaRepository<Conversation, UUID> {
+
+    List<Conversation> findByEndedAtIsNull();
+}
@@ -1,12 +1,64 @@
 package org.jobrad.backend.repository;
 
 import org.jobrad.backend.entity.Message;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
-public interface MessageRepository extends JpaRepository<Message, UUID> {
+/**
+ * Keyset queries on (timestamp, id). Sent and received history are read separately so each side is
+ * a range scan on its own (sender, timestamp) or (recipient, timestamp) index, and conversation history
+ * on the (conversation_id, timestamp) index.
+ */
+public interface MessageRepository extends JpaRepository<Message, Long> {
+
+    @Query("select m from Message m where m.sender = :user and m.timestamp >= :timestamp"
+            + " and (m.timestamp > :timestamp or m.id > :id) order by m.timestamp asc, m.id asc")
+    List<Message> findSentAfter(@Param("user") String user, @Param("timestamp") LocalDateTime timestamp,
+                                @Param("id") long id, Limit limit);
+
+    @Query("select m from Message m where m.recipient = :user and m.timestamp >= :timestamp"
+            + " and (m.timestamp > :timestamp or m.id > :id) order by m.timestamp asc, m.id asc")
+    List<Message> findReceivedAfter(@Param("user") String user, @Param("timestamp") LocalDateTime timestamp,
+                                    @Param("id") long id, Limit limit);
+
+    @Query("select m from Message m where m.sender = :user and m.timestamp <= :timestamp"
+            + " and (m.timestamp < :timestamp or m.id < :id) order by m.timestamp desc, m.id desc")
+    List<Message> findSentBefore(@Param("user") String user, @Param("timestamp") LocalDateTime timestamp,
+                                 @Param("id") long id, Limit limit);
+
+    @Query("select m from Message m where m.recipient = :user and m.timestamp <= :timestamp"
+            + " and (m.timestamp < :timestamp or m.id < :id) order by m.timestamp desc, m.id desc")
+    List<Message> findReceivedBefore(@Param("user") String user, @Param("timestamp") LocalDateTime timestamp,
+                                     @Param("id") long id, Limit limit);
+
+    // Every message after the cursor, oldest first
+    @Query("select m from Message m where m.timestamp >= :timestamp and (m.timestamp > :timestamp or m.id > :id)"
+            + " order by m.timestamp asc, m.id asc")
+    List<Message> findAllAfter(@Param("timestamp") LocalDateTime timestamp, @Param("id") long id, Limit limit);
+
+    // Messages older than cutoff outside any conversation or in one that ended before cutoff, after the cursor
+    @Query("select m from Message m where m.timestamp < :cutoff and m.timestamp >= :timestamp"
+            + " and (m.timestamp > :timestamp or m.id > :id)"
+            + " and (m.conversationId is null or exists (select c.id from Conversation c"
+            + " where c.id = m.conversationId and c.endedAt < :cutoff))"
+            + " order by m.timestamp asc, m.id asc")
+    List<Message> findArchivable(@Param("cutoff") LocalDateTime cutoff, @Param("timestamp") LocalDateTime timestamp,
+                                 @Param("id") long id, Limit limit);
+
+    @Query("select m from Message m where m.conversationId = :conversationId and m.timestamp >= :timestamp"
+            + " and (m.timestamp > :timestamp or m.id > :id) order by m.timestamp asc, m.id asc")
+    List<Message> findInConversationAfter(@Param("conversationId") UUID conversationId,
+                                          @Param("timestamp") LocalDateTime timestamp, @Param("id") long id, Limit limit);
 
-    List<Message> findBySenderOrRecipientOrderByTimestampAsc(String sender, String recipient);
+    @Query("select m from Message m where m.conversationId = :conversationId and m.timestamp <= :timestamp"
+            + " and (m.timestamp < :timestamp or m.id < :id) order by m.timestamp desc, m.id desc")
+    List<Message> findInConversationBefore(@Param("conversationId") UUID conversationId,
+                                           @Param("timestamp") LocalDateTime timestamp, @Param("id") long id, Limit limit);
 
-}
\ No newline at end of file
+}
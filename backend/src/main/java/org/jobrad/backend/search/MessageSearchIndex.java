@@ -0,0 +1,285 @@
+package org.jobrad.backend.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.repository.MessageRepository;
+import org.jobrad.backend.service.MessageIdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Embedded Lucene index over message content for agent search. Messages are added as they are
+ * persisted and become searchable within {@code chat.search.refresh-interval}. The index is kept in
+ * memory, or in {@code chat.search.dir} when set, and sorted newest first, so a page of the newest
+ * matches is collected without visiting older ones.
+ *
+ * <p>The index catches up with the message table: in full after startup, from the position of its
+ * last commit (a fresh in-memory index rebuilds from the start), and every
+ * {@code chat.search.catch-up-interval} for messages other nodes persisted. Re-reading a window of
+ * {@code chat.search.catch-up-overlap} picks up rows committed late; indexing a message again
+ * replaces it.
+ */
+@Component
+public class MessageSearchIndex implements DisposableBean {
+
+    private static final String ID = "id";
+    private static final String ID_ORDER = "id_order";
+    private static final String TIMESTAMP = "timestamp";
+    private static final String SENDER = "sender";
+    private static final String RECIPIENT = "recipient";
+    private static final String SENDER_TYPE = "sender_type";
+    private static final String CONVERSATION = "conversation";
+    private static final String CONTENT = "content";
+    private static final String CURSOR = "cursor";
+    private static final int CATCH_UP_BATCH = 1000;
+    private static final Sort NEWEST_FIRST = new Sort(
+            new SortedNumericSortField(TIMESTAMP, SortField.Type.LONG, true),
+            new SortedNumericSortField(ID_ORDER, SortField.Type.LONG, true));
+
+    private final Logger logger = LoggerFactory.getLogger(MessageSearchIndex.class);
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final Duration catchUpOverlap;
+    private final ReentrantLock catchUpLock = new ReentrantLock();
+    // Position in the message table up to which every row has been indexed
+    private volatile MessageCursor caughtUp;
+    private volatile boolean rebuilt;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageIdGenerator messageIdGenerator;
+
+    public MessageSearchIndex(@Value("${chat.search.dir:}") String directory,
+                              @Value("${chat.search.catch-up-overlap:5s}") Duration catchUpOverlap) throws IOException {
+        this.directory = directory.isBlank() ? new ByteBuffersDirectory() : FSDirectory.open(Path.of(directory));
+        this.writer = new IndexWriter(this.directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setIndexSort(NEWEST_FIRST));
+        this.searcherManager = new SearcherManager(writer, null);
+        this.catchUpOverlap = catchUpOverlap;
+        MessageCursor committed = null;
+        if (writer.getLiveCommitData() != null) {
+            for (Map.Entry<String, String> entry : writer.getLiveCommitData()) {
+                if (CURSOR.equals(entry.getKey())) {
+                    committed = MessageCursor.decode(entry.getValue());
+                }
+            }
+        }
+        this.caughtUp = committed != null ? committed : MessageCursor.EARLIEST;
+    }
+
+    public void index(Message message) {
+        try {
+            writer.updateDocument(new Term(ID, Long.toString(message.getId())), document(message));
+        } catch (IOException | RuntimeException e) {
+            logger.error("MessageSearchIndex: Failed to index message {}: {}", message.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Up to {@code rows} messages matching {@code text}, newest first, older than {@code before} if
+     * set. The text supports quoted phrases, {@code -term}, {@code a | b} and {@code prefix*}; terms
+     * are otherwise all required. {@code userId} limits matches to messages the user sent or
+     * received, {@code from} (inclusive) and {@code to} (exclusive) to a time range.
+     */
+    public List<Message> search(String text, String userId, LocalDateTime from, LocalDateTime to,
+                                MessageCursor before, int rows) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, CONTENT);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        BooleanQuery.Builder query = new BooleanQuery.Builder().add(parser.parse(text), BooleanClause.Occur.MUST);
+        if (userId != null) {
+            query.add(new BooleanQuery.Builder()
+                    .add(new TermQuery(new Term(SENDER, userId)), BooleanClause.Occur.SHOULD)
+                    .add(new TermQuery(new Term(RECIPIENT, userId)), BooleanClause.Occur.SHOULD)
+                    .build(), BooleanClause.Occur.FILTER);
+        }
+        if (from != null || to != null) {
+            query.add(LongField.newRangeQuery(TIMESTAMP,
+                    from != null ? micros(from) : Long.MIN_VALUE,
+                    to != null ? micros(to) - 1 : Long.MAX_VALUE), BooleanClause.Occur.FILTER);
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                Query built = query.build();
+                TopDocs top = before == null
+                        ? searcher.search(built, rows, NEWEST_FIRST)
+                        // Ids are unique, so starting just below the cursor's id excludes only its own message
+                        : searcher.searchAfter(new FieldDoc(-1, Float.NaN,
+                        new Object[]{micros(before.timestamp()), before.id() - 1}), built, rows, NEWEST_FIRST);
+                StoredFields storedFields = searcher.storedFields();
+                List<Message> messages = new ArrayList<>(top.scoreDocs.length);
+                for (ScoreDoc hit : top.scoreDocs) {
+                    messages.add(message(storedFields.document(hit.doc)));
+                }
+                return messages;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Off the scheduler thread, which a rebuild of a large table would hold for minutes
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Thread rebuild = new Thread(() -> catchUp(false), "search-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    // Messages this node persisted are already indexed once the pass after startup has succeeded
+    @Scheduled(initialDelayString = "${chat.search.catch-up-interval:30s}", fixedDelayString = "${chat.search.catch-up-interval:30s}")
+    public void catchUp() {
+        catchUp(rebuilt);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.search.refresh-interval:1s}")
+    public void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            logger.error("MessageSearchIndex: Failed to refresh searcher: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    void catchUp(boolean skipOwn) {
+        if (!catchUpLock.tryLock()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int indexed = 0;
+        try {
+            MessageCursor from = new MessageCursor(caughtUp.timestamp().minus(catchUpOverlap), Long.MIN_VALUE);
+            List<Message> batch;
+            do {
+                batch = messageRepository.findAllAfter(from.timestamp(), from.id(), Limit.of(CATCH_UP_BATCH));
+                for (Message message : batch) {
+                    if (!skipOwn || !messageIdGenerator.isOwn(message.getId())) {
+                        writer.updateDocument(new Term(ID, Long.toString(message.getId())), document(message));
+                        indexed++;
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    Message last = batch.get(batch.size() - 1);
+                    from = new MessageCursor(last.getTimestamp(), last.getId());
+                }
+            } while (batch.size() == CATCH_UP_BATCH);
+            if (MessageCursor.ORDER.compare(from, caughtUp) > 0) {
+                caughtUp = from;
+            }
+            if (writer.hasUncommittedChanges() || indexed > 0) {
+                writer.setLiveCommitData(Map.of(CURSOR, caughtUp.encode()).entrySet());
+                writer.commit();
+            }
+            searcherManager.maybeRefresh();
+            rebuilt = true;
+            if (!skipOwn) {
+                logger.info("MessageSearchIndex: Indexed {} messages in {} ms", indexed, System.currentTimeMillis() - start);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Retried by the next scheduled run
+            logger.error("MessageSearchIndex: Catch-up failed after {} messages: {}", indexed, e.getMessage());
+        } finally {
+            catchUpLock.unlock();
+        }
+    }
+
+    private static Document document(Message message) {
+        Document document = new Document();
+        document.add(new StringField(ID, Long.toString(message.getId()), Field.Store.YES));
+        document.add(new LongField(ID_ORDER, message.getId(), Field.Store.NO));
+        document.add(new LongField(TIMESTAMP, micros(message.getTimestamp()), Field.Store.YES));
+        document.add(new StringField(SENDER, message.getSender(), Field.Store.YES));
+        document.add(new StringField(RECIPIENT, message.getRecipient(), Field.Store.YES));
+        document.add(new StoredField(SENDER_TYPE, message.getSenderType().name()));
+        if (message.getConversationId() != null) {
+            document.add(new StoredField(CONVERSATION, message.getConversationId().toString()));
+        }
+        document.add(new TextField(CONTENT, message.getContent(), Field.Store.YES));
+        return document;
+    }
+
+    private static Message message(Document document) {
+        String conversationId = document.get(CONVERSATION);
+        return Message.builder()
+                .id(Long.parseLong(document.get(ID)))
+                .timestamp(timestamp(document.getField(TIMESTAMP).numericValue().longValue()))
+                .sender(document.get(SENDER))
+                .recipient(document.get(RECIPIENT))
+                .senderType(UserRole.valueOf(document.get(SENDER_TYPE)))
+                .conversationId(conversationId != null ? UUID.fromString(conversationId) : null)
+                .content(document.get(CONTENT))
+                .build();
+    }
+
+    private static long micros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + timestamp.getNano() / 1_000;
+    }
+
+    private static LocalDateTime timestamp(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,43 @@
+package org.jobrad.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+
+/**
+ * Bounded cache of account details for login and token refresh, so repeated logins of the same
+ * agent skip the database. Entries expire after {@code ttl}, which bounds how long a deleted or
+ * changed account can still log in or refresh.
+ */
+public class CaffeineUserCache implements UserCache {
+
+    private final Cache<String, UserDetails> cache;
+
+    public CaffeineUserCache(long maxUsers, Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        UserDetails user = cache.getIfPresent(username);
+        // A copy, since a successful login erases the password of the details it was given
+        return user != null ? User.withUserDetails(user).build() : null;
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        cache.put(user.getUsername(), User.withUserDetails(user).build());
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        cache.invalidate(username);
+    }
+}
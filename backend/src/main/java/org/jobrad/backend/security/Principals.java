@@ -0,0 +1,44 @@
+package org.jobrad.backend.security;
+
+import org.jobrad.backend.entity.UserRole;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.security.Principal;
+import java.util.Collection;
+
+/**
+ * Reads the chat role back from an authenticated principal, whether it came from a token or a
+ * password login. Accounts have exactly one role.
+ */
+public final class Principals {
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private Principals() {
+    }
+
+    // Null if the principal is not an authentication carrying a chat role
+    public static UserRole roleOf(Principal principal) {
+        return principal instanceof Authentication authentication ? roleOf(authentication.getAuthorities()) : null;
+    }
+
+    // Agents and admins act for any user; everyone else only for themselves
+    public static boolean mayActFor(Principal principal, String userId) {
+        if (principal == null) {
+            return false;
+        }
+        UserRole role = roleOf(principal);
+        return role == UserRole.SUPPORT_AGENT || role == UserRole.ADMIN || principal.getName().equals(userId);
+    }
+
+    public static UserRole roleOf(Collection<? extends GrantedAuthority> authorities) {
+        for (GrantedAuthority authority : authorities) {
+            String name = authority.getAuthority();
+            if (name != null && name.startsWith(ROLE_PREFIX)) {
+                return UserRole.valueOf(name.substring(ROLE_PREFIX.length()));
+            }
+        }
+        return null;
+    }
+}
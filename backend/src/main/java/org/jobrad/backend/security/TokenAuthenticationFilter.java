@@ -0,0 +1,64 @@
+package org.jobrad.backend.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Authenticates requests carrying {@code Authorization: Bearer <access token>} from the token alone.
+ * Browsers cannot set headers on WebSocket and SockJS requests, so under {@code /chat} the token may
+ * also come as the {@code access_token} query parameter; the handshake's principal then becomes the
+ * WebSocket session's. Requests without a valid token pass through unauthenticated and are rejected
+ * by the authorization rules where they need a user.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+    private static final String WEBSOCKET_PATH = "/chat";
+    private static final String TOKEN_PARAMETER = "access_token";
+
+    private final TokenService tokenService;
+
+    public TokenAuthenticationFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String value = tokenOf(request);
+        if (value != null) {
+            TokenService.AuthToken token = tokenService.verify(value, TokenService.ACCESS);
+            if (token != null) {
+                SecurityContextHolder.getContext().setAuthentication(authentication(token));
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private static String tokenOf(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return header.substring(BEARER.length()).trim();
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.equals(WEBSOCKET_PATH) || path.startsWith(WEBSOCKET_PATH + "/")) {
+            return request.getParameter(TOKEN_PARAMETER);
+        }
+        return null;
+    }
+
+    public static UsernamePasswordAuthenticationToken authentication(TokenService.AuthToken token) {
+        return UsernamePasswordAuthenticationToken.authenticated(token.username(), null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + token.role().name())));
+    }
+}
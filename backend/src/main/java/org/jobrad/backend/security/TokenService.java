@@ -0,0 +1,132 @@
+package org.jobrad.backend.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.jobrad.backend.dto.TokenResponse;
+import org.jobrad.backend.entity.UserRole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Issues and checks HMAC-SHA256 signed tokens in the JWT compact format. A token carries the user
+ * name, role and expiry, so checking one needs neither the database nor a password hash. Access
+ * tokens are short lived; a refresh token is exchanged for a new pair at {@code /api/auth/refresh}.
+ *
+ * <p>Without {@code chat.auth.token-secret} a random key is generated, which invalidates tokens on
+ * restart and cannot be shared by several nodes.
+ */
+@Component
+public class TokenService {
+
+    public static final String ACCESS = "access";
+    public static final String REFRESH = "refresh";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final String HEADER = encode("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Logger logger = LoggerFactory.getLogger(TokenService.class);
+
+    private final SecretKeySpec key;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+    // Mac instances are not thread safe and costly to look up
+    private final ThreadLocal<Mac> macs;
+
+    public TokenService(@Value("${chat.auth.token-secret:}") String secret,
+                        @Value("${chat.auth.access-token-ttl:15m}") Duration accessTtl,
+                        @Value("${chat.auth.refresh-token-ttl:7d}") Duration refreshTtl) {
+        byte[] secretBytes;
+        if (secret.isBlank()) {
+            logger.warn("TokenService: chat.auth.token-secret is not set, tokens will not survive a restart or work across nodes");
+            secretBytes = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(secretBytes);
+        } else {
+            secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+            if (secretBytes.length < MIN_SECRET_BYTES) {
+                throw new IllegalArgumentException("chat.auth.token-secret must be at least " + MIN_SECRET_BYTES + " bytes");
+            }
+        }
+        this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+        this.accessTtl = accessTtl;
+        this.refreshTtl = refreshTtl;
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    // A new access and refresh token pair; guest marks anonymous sessions, which have no account to check on refresh
+    public TokenResponse issue(String username, UserRole role, boolean guest) {
+        long now = System.currentTimeMillis() / 1000;
+        return new TokenResponse(username, role.name(),
+                sign(username, role, guest, ACCESS, now, now + accessTtl.toSeconds()),
+                sign(username, role, guest, REFRESH, now, now + refreshTtl.toSeconds()),
+                accessTtl.toSeconds());
+    }
+
+    // The token's claims if it is a well-formed, correctly signed, unexpired token of the given type, otherwise null
+    public AuthToken verify(String token, String type) {
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = token.lastIndexOf('.');
+        if (headerEnd < 0 || payloadEnd <= headerEnd) {
+            return null;
+        }
+        try {
+            byte[] expected = macs.get().doFinal(token.substring(0, payloadEnd).getBytes(StandardCharsets.US_ASCII));
+            if (!MessageDigest.isEqual(expected, DECODER.decode(token.substring(payloadEnd + 1)))
+                    || !HEADER.equals(token.substring(0, headerEnd))) {
+                return null;
+            }
+            JsonNode claims = OBJECT_MAPPER.readTree(DECODER.decode(token.substring(headerEnd + 1, payloadEnd)));
+            long expiresAt = claims.path("exp").asLong();
+            if (!type.equals(claims.path("typ").asText()) || expiresAt <= System.currentTimeMillis() / 1000) {
+                return null;
+            }
+            return new AuthToken(claims.path("sub").asText(), UserRole.valueOf(claims.path("role").asText()),
+                    claims.path("guest").asBoolean(), expiresAt);
+        } catch (Exception e) {
+            // Malformed Base64, JSON or role
+            return null;
+        }
+    }
+
+    private String sign(String username, UserRole role, boolean guest, String type, long issuedAt, long expiresAt) {
+        ObjectNode claims = OBJECT_MAPPER.createObjectNode()
+                .put("sub", username)
+                .put("role", role.name())
+                .put("typ", type)
+                .put("iat", issuedAt)
+                .put("exp", expiresAt);
+        if (guest) {
+            claims.put("guest", true);
+        }
+        String unsigned = HEADER + "." + encode(claims.toString().getBytes(StandardCharsets.UTF_8));
+        return unsigned + "." + encode(macs.get().doFinal(unsigned.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public record AuthToken(String username, UserRole role, boolean guest, long expiresAt) {
+    }
+}
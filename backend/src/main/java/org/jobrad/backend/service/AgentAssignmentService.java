@@ -1,15 +1,31 @@
 package org.jobrad.backend.service;
 
+import org.jobrad.backend.entity.Conversation;
+import org.jobrad.backend.entity.UserRole;
+
+import java.util.Set;
+
 public interface AgentAssignmentService {
-    String assignAgent(String guestId);
+    // The role sets the guest's place in the queue, and is taken from its authenticated principal
+    String assignAgent(String guestId, UserRole role);
 
     String getAssignedAgent(String guestId);
 
-    String getAssignedGuest(String agentId);
+    Set<String> getAssignedGuests(String agentId);
 
+    /**
+     * The agent logged out, disconnected or went silent: it gets no new guests and its guests go
+     * back to the queue. It takes guests again once it next asks for its assignment.
+     */
     void freeAgent(String agentId);
 
     void freeGuest(String guestId);
 
-    void queueGuest(String guestId);
+    void queueGuest(String guestId, UserRole role);
+
+    /**
+     * The active conversation between a guest and an agent, given in either order, or null if the two
+     * are not currently assigned to each other.
+     */
+    Conversation findActiveConversation(String userId, String peerId);
 }
@@ -1,113 +1,185 @@
 package org.jobrad.backend.service;
 
 import org.jobrad.backend.dto.AssignmentMessageResponse;
+import org.jobrad.backend.entity.Conversation;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.event.ConversationEndedEvent;
+import org.jobrad.backend.event.ConversationStartedEvent;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.jobrad.backend.repository.ConversationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Assignment service. Each agent holds a configurable number of chat slots; waiting guests are
+ * handed to the agent with the most free slots by {@link #drain()}, which runs after every change
+ * and claims from the {@link AssignmentStateStore} until one side runs dry. The store keeps the
+ * capacity, queue and bindings, so it decides whether state is per node or shared by all replicas.
+ * Where a guest waits is decided by the {@link WaitingQueuePolicy}, and waiting guests are told
+ * their position and an estimated wait on {@code /queue/assignment}. Each assignment is a
+ * {@link Conversation} that is persisted when it starts and again when it ends.
+ */
 @Service
 public class AgentAssignmentServiceImpl implements AgentAssignmentService {
-    private final Map<String, String> agentToGuest = new ConcurrentHashMap<>();
-    private final Map<String, String> guestToAgent = new ConcurrentHashMap<>();
-    private final Set<String> agentAvailability = new LinkedHashSet<>();
-    private final Set<String> queuingGuests = new LinkedHashSet<>();
+    private static final String GUEST_PREFIX = "Guest_";
+
+    private final AssignmentStateStore store;
+    private final WaitingQueuePolicy queuePolicy;
+    private final int agentSlots;
+    // When each guest queued on this node started waiting, for the wait-time metric
+    private final Map<String, Long> waitingSince = new ConcurrentHashMap<>();
+    // Roles of guests assigned or queued on this node, for re-queueing them when their agent leaves;
+    // a guest that came in through another node is re-queued as GUEST
+    private final Map<String, UserRole> guestRoles = new ConcurrentHashMap<>();
+    // Positions last pushed by publishQueuePositions, which is the only thread that touches this
+    private Map<String, Integer> publishedPositions = Map.of();
+
+    private final Logger logger = LoggerFactory.getLogger(AgentAssignmentServiceImpl.class);
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
-    // Initialize with agent1 as available
-    public AgentAssignmentServiceImpl() {
-        agentAvailability.add("agent1");
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    public AgentAssignmentServiceImpl(@Value("${chat.assignment.agent-slots:3}") int agentSlots,
+                                      AssignmentStateStore store,
+                                      WaitingQueuePolicy queuePolicy) {
+        if (agentSlots < 1) {
+            throw new IllegalArgumentException("chat.assignment.agent-slots must be at least 1");
+        }
+        this.agentSlots = agentSlots;
+        this.store = store;
+        this.queuePolicy = queuePolicy;
+        // The seeded agent takes guests before it first asks for its assignment
+        store.registerAgent("agent1", agentSlots);
     }
 
-    public synchronized String assignAgent(String guestId) {
-        Optional<String> agentAvailable = agentAvailability.stream().findFirst();
-        if (agentAvailable.isPresent()) {
-            String agentId = agentAvailable.get();
-            agentToGuest.put(agentId, guestId);
-            guestToAgent.put(guestId, agentId);
-            agentAvailability.remove(agentId);
-            // Notify guest
-            messagingTemplate.convertAndSendToUser(
-                    guestId,
-                    "/queue/assignment",
-                    new AssignmentMessageResponse(agentId)
-            );
+    // Conversations still open when the application stopped keep their agent
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        try {
+            List<Conversation> active = conversationRepository.findByEndedAtIsNull();
+            store.restore(active, agentSlots);
+            active.forEach(conversation -> eventPublisher.publishEvent(new ConversationStartedEvent(conversation)));
+        } catch (RuntimeException e) {
+            logger.error("AgentAssignmentService: Failed to restore active conversations: {}", e.getMessage());
+        }
+        drain();
+    }
 
-            // Notify agent
-            messagingTemplate.convertAndSendToUser(
-                    agentId,
-                    "/queue/assignment",
-                    new AssignmentMessageResponse(guestId)
-            );
-            return agentId;
+    // Catches guests left waiting when a claim on a shared store lost a race with another node
+    @Scheduled(fixedDelayString = "${chat.assignment.drain-interval:5s}")
+    public void drainPending() {
+        drain();
+    }
+
+    // Everyone behind a guest that was served or left moves up; only changed positions are sent
+    @Scheduled(fixedDelayString = "${chat.queue.position-update-interval:5s}")
+    public void publishQueuePositions() {
+        List<String> waiting = store.waitingGuests();
+        int slots = store.capacity();
+        Map<String, Integer> positions = new HashMap<>(waiting.size() * 2);
+        for (int i = 0; i < waiting.size(); i++) {
+            String guestId = waiting.get(i);
+            int position = i + 1;
+            positions.put(guestId, position);
+            if (!Integer.valueOf(position).equals(publishedPositions.get(guestId))) {
+                notifyQueued(guestId, position, slots);
+            }
         }
+        publishedPositions = positions;
+    }
 
-        queuingGuests.add(guestId);
-        return null;
+    @Override
+    public String assignAgent(String guestId, UserRole role) {
+        String assigned = getAssignedAgent(guestId);
+        if (assigned != null) {
+            return assigned;
+        }
+        guestRoles.put(guestId, role);
+        enqueue(guestId);
+        drain();
+        String agentId = getAssignedAgent(guestId);
+        if (agentId == null) {
+            notifyPosition(guestId);
+        }
+        return agentId;
     }
 
+    @Override
     public String getAssignedAgent(String guestId) {
-        return guestToAgent.get(guestId);
-    }
-
-    public String getAssignedGuest(String agentId) {
-        String guestId = agentToGuest.get(agentId);
-        if(guestId == null) {
-            Optional<String> waitingGuest = queuingGuests.stream().findFirst();
-            if (waitingGuest.isPresent()) {
-                guestId = waitingGuest.get();
-                agentToGuest.put(agentId, guestId);
-                guestToAgent.put(guestId, agentId);
-                queuingGuests.remove(guestId);
+        Conversation conversation = store.findByGuest(guestId);
+        return conversation != null ? conversation.getAgentId() : null;
+    }
+
+    @Override
+    public Set<String> getAssignedGuests(String agentId) {
+        // An agent asking for work is available for the next waiting guests
+        store.registerAgent(agentId, agentSlots);
+        drain();
+        return store.guestsOf(agentId);
+    }
+
+    @Override
+    public void freeAgent(String agentId) {
+        // Out of rotation first, or the drain below would hand its guests straight back
+        store.unregisterAgent(agentId);
+        List<String> released = new ArrayList<>();
+        for (String guestId : store.guestsOf(agentId)) {
+            if (unbind(agentId, guestId)) {
+                released.add(guestId);
+                enqueue(guestId);
                 // Notify guest
                 messagingTemplate.convertAndSendToUser(
                         guestId,
                         "/queue/assignment",
-                        new AssignmentMessageResponse(agentId)
+                        new AssignmentMessageResponse("")
                 );
             }
         }
-        return guestId;
-    }
-
-    public synchronized void freeAgent(String agentId) {
-        String guestId = agentToGuest.get(agentId);
-        if (guestId != null) {
-            agentToGuest.remove(agentId);
-            guestToAgent.remove(guestId);
-            agentAvailability.add(agentId);
-            queuingGuests.add(guestId);
-            // Notify guest
-            messagingTemplate.convertAndSendToUser(
-                    guestId,
-                    "/queue/assignment",
-                    new AssignmentMessageResponse("")
-            );
+        if (!released.isEmpty()) {
+            drain();
+            released.forEach(this::notifyPosition);
         }
     }
 
-    public synchronized void freeGuest(String guestId) {
-        String agentId = guestToAgent.get(guestId);
-        if (agentId != null) {
-            agentToGuest.remove(agentId);
-            guestToAgent.remove(guestId);
-            // Remove guest from queue if present
-            Optional<String> first = queuingGuests.stream().findFirst();
-            if (first.isPresent()) {
-                guestToAgent.put(first.get(), agentId);
-                messagingTemplate.convertAndSendToUser(
-                        first.get(),
-                        "/queue/assignment",
-                        new AssignmentMessageResponse(agentId)
-                );
-                queuingGuests.remove(first.get());
-            } else {
-                agentAvailability.add(agentId);
-                // Notify guest
+    @Override
+    public void freeGuest(String guestId) {
+        // Remove guest from queue if present; a guest who comes back soon keeps its place
+        Long sortKey = store.dequeue(guestId);
+        waitingSince.remove(guestId);
+        guestRoles.remove(guestId);
+        if (sortKey != null) {
+            queuePolicy.abandoned(guestId, sortKey);
+        }
+        String agentId = getAssignedAgent(guestId);
+        if (agentId != null && unbind(agentId, guestId)) {
+            drain();
+            if (store.guestsOf(agentId).isEmpty()) {
+                // Notify agent
                 messagingTemplate.convertAndSendToUser(
                         agentId,
                         "/queue/assignment",
@@ -118,13 +190,93 @@ public class AgentAssignmentServiceImpl implements AgentAssignmentService {
     }
 
     @Override
-    public void queueGuest(String guestId) {
-        queuingGuests.add(guestId);
+    public void queueGuest(String guestId, UserRole role) {
+        if (store.findByGuest(guestId) != null) {
+            return;
+        }
+        guestRoles.put(guestId, role);
+        enqueue(guestId);
+        drain();
+        notifyPosition(guestId);
+    }
+
+    @Override
+    public Conversation findActiveConversation(String userId, String peerId) {
+        if (userId == null || peerId == null) {
+            return null;
+        }
+        boolean userIsGuest = userId.startsWith(GUEST_PREFIX);
+        Conversation conversation = store.findByGuest(userIsGuest ? userId : peerId);
+        String agentId = userIsGuest ? peerId : userId;
+        return conversation != null && conversation.getAgentId().equals(agentId) ? conversation : null;
+    }
+
+    // Hands waiting guests to free slots; stops once the store has nothing left to claim
+    private void drain() {
+        Conversation conversation;
+        while ((conversation = store.claimNext()) != null) {
+            save(conversation);
+            Long queuedAt = waitingSince.remove(conversation.getGuestId());
+            if (queuedAt != null) {
+                chatMetrics.recordAssignmentWait(Duration.ofNanos(System.nanoTime() - queuedAt));
+            }
+            eventPublisher.publishEvent(new ConversationStartedEvent(conversation));
+            // Notify guest
+            messagingTemplate.convertAndSendToUser(
+                    conversation.getGuestId(),
+                    "/queue/assignment",
+                    new AssignmentMessageResponse(conversation.getAgentId(), conversation.getId())
+            );
+            // Notify agent
+            messagingTemplate.convertAndSendToUser(
+                    conversation.getAgentId(),
+                    "/queue/assignment",
+                    new AssignmentMessageResponse(conversation.getGuestId(), conversation.getId())
+            );
+        }
+    }
+
+    // The store's release succeeds once per binding, so concurrent frees end a conversation once
+    private boolean unbind(String agentId, String guestId) {
+        Conversation conversation = store.release(agentId, guestId);
+        if (conversation == null) {
+            return false;
+        }
+        save(conversation);
+        queuePolicy.recordHandleTime(Duration.between(conversation.getStartedAt(), conversation.getEndedAt()));
+        eventPublisher.publishEvent(new ConversationEndedEvent(conversation));
+        return true;
+    }
+
+    private void enqueue(String guestId) {
+        if (store.enqueue(guestId, queuePolicy.sortKey(guestId, guestRoles.getOrDefault(guestId, UserRole.GUEST)))) {
+            waitingSince.putIfAbsent(guestId, System.nanoTime());
+        }
+    }
+
+    // Sends the guest its place in the queue, if it is still waiting
+    private void notifyPosition(String guestId) {
+        int position = store.positionOf(guestId);
+        if (position > 0) {
+            notifyQueued(guestId, position, store.capacity());
+        }
+    }
+
+    private void notifyQueued(String guestId, int position, int slots) {
         // Notify guest
         messagingTemplate.convertAndSendToUser(
                 guestId,
                 "/queue/assignment",
-                new AssignmentMessageResponse("You are in the queue")
+                AssignmentMessageResponse.queued(position, queuePolicy.estimateWait(position, slots))
         );
     }
-}
\ No newline at end of file
+
+    // The store is authoritative for routing, so a failed write must not undo the assignment
+    private void save(Conversation conversation) {
+        try {
+            conversationRepository.save(conversation);
+        } catch (RuntimeException e) {
+            logger.error("AgentAssignmentService: Failed to persist conversation {}: {}", conversation.getId(), e.getMessage());
+        }
+    }
+}
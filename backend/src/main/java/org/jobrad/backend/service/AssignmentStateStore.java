@@ -0,0 +1,70 @@
+package org.jobrad.backend.service;
+
+import org.jobrad.backend.entity.Conversation;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Assignment state behind {@link AgentAssignmentServiceImpl}: agent capacity, the waiting queue and
+ * the active guest-to-agent bindings. Every method is atomic on its own, so several service
+ * instances, in one JVM or on several nodes, can share a store without handing out a slot twice.
+ */
+public interface AssignmentStateStore {
+
+    // Adds the agent with the given capacity; no-op if the agent is already known
+    void registerAgent(String agentId, int capacity);
+
+    /**
+     * Takes the agent out of rotation so no further guest is claimed for it, and drops its capacity.
+     * Existing bindings stay until released. No-op if the agent is not known.
+     */
+    void unregisterAgent(String agentId);
+
+    /**
+     * Queues the guest unless it is already queued or assigned; returns true if it was queued.
+     * Guests are served in ascending sort key order.
+     */
+    boolean enqueue(String guestId, long sortKey);
+
+    // Removes the guest from the queue; returns the sort key it held, or null if it was not queued.
+    // A claim that already took the guest either shows in findByGuest after this or leaves it unbound
+    Long dequeue(String guestId);
+
+    // The guest's place in the queue, 1 for the next guest served, 0 if the guest is not queued
+    int positionOf(String guestId);
+
+    // Waiting guests in the order they will be served
+    List<String> waitingGuests();
+
+    // Total slots of all known agents
+    int capacity();
+
+    int waitingCount();
+
+    // Slots in use, one per active binding
+    int activeCount();
+
+    /**
+     * Binds the guest with the lowest sort key to the agent with the most free slots and returns
+     * the new conversation, or null if there is no waiting guest or no free slot.
+     */
+    Conversation claimNext();
+
+    /**
+     * Ends the guest's binding to the agent and frees the slot. Returns the ended conversation, or
+     * null if the two were not bound, so concurrent releases end a conversation once.
+     */
+    Conversation release(String agentId, String guestId);
+
+    Conversation findByGuest(String guestId);
+
+    Set<String> guestsOf(String agentId);
+
+    /**
+     * Rebuilds bindings from conversations that were active when the application stopped. Durable
+     * stores already hold them and ignore this.
+     */
+    default void restore(List<Conversation> active, int capacity) {
+    }
+}
@@ -0,0 +1,32 @@
+package org.jobrad.backend.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Picks the {@link AssignmentStateStore} from {@code chat.assignment.store}: {@code memory} (the
+ * default) for a single node, {@code jdbc} to share assignment state between replicas through the
+ * database and keep the waiting queue across restarts.
+ */
+@Configuration
+public class AssignmentStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "chat.assignment.store", havingValue = "jdbc")
+    // The tables are created by the schema migrations
+    @DependsOn("flywayInitializer")
+    public AssignmentStateStore jdbcAssignmentStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        return new JdbcAssignmentStore(jdbcTemplate, transactionManager);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public AssignmentStateStore inMemoryAssignmentStore() {
+        return new InMemoryAssignmentStore();
+    }
+}
@@ -0,0 +1,88 @@
+package org.jobrad.backend.service;
+
+import org.jobrad.backend.cluster.ClusterRouter;
+import org.jobrad.backend.config.ChatFrame;
+import org.jobrad.backend.config.ChatFrameCodec;
+import org.jobrad.backend.entity.Conversation;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * The one path every chat message takes, whichever endpoint it arrived on. The STOMP controller and
+ * the raw handler only adapt their frames into a {@link Message} from the authenticated sender; this
+ * stamps it, resolves its conversation, encodes it once and delivers it through
+ * {@link ClusterRouter#sendChat} to the recipient and to the sender's own sessions on every transport
+ * and node, then hands it to persistence. A message outside an active conversation, or longer than
+ * {@code chat.message.max-length}, is dropped.
+ */
+@Component
+public class ChatPipeline {
+
+    private final Logger logger = LoggerFactory.getLogger(ChatPipeline.class);
+
+    @Autowired
+    private MessageIdGenerator messageIdGenerator;
+
+    @Autowired
+    private ConversationBindings conversationBindings;
+
+    @Autowired
+    private ConversationReaper conversationReaper;
+
+    @Autowired
+    private ChatFrameCodec frameCodec;
+
+    @Autowired
+    private ClusterRouter clusterRouter;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Value("${chat.message.max-length:4000}")
+    private int maxContentLength;
+
+    // False if the message was dropped because it is too long or sender and recipient share no active conversation
+    public boolean send(Message message, String transport, long receivedNanos) throws IOException {
+        String sender = message.getSender();
+        String recipient = message.getRecipient();
+        if (message.getContent() == null || message.getContent().length() > maxContentLength) {
+            logger.warn("ChatPipeline: Dropping message from {} without content or over {} characters", sender, maxContentLength);
+            return false;
+        }
+        Conversation conversation = conversationBindings.find(sender, recipient);
+        if (conversation == null) {
+            // Neither delivered nor stored, so nobody can write into another user's history
+            logger.warn("ChatPipeline: Invalid recipient or assignment: sender={}, recipient={}", sender, recipient);
+            return false;
+        }
+        message.setId(messageIdGenerator.nextId());
+        // Server time keeps (timestamp, id) cursors consistent regardless of client clocks
+        message.setTimestamp(LocalDateTime.now());
+        message.setConversationId(conversation.getId());
+
+        ChatFrame frame = frameCodec.frame(message);
+        conversationReaper.recordMessage(conversation, sender);
+        if (clusterRouter.sendChat(recipient, frame) == 0) {
+            logger.info("ChatPipeline: Recipient not connected: {}", recipient);
+        }
+        // Confirmation, on every tab or device the sender has open
+        if (clusterRouter.sendChat(sender, frame) == 0) {
+            logger.warn("ChatPipeline: Sender not connected: {}", sender);
+        }
+        chatMetrics.recordIngest(transport, receivedNanos);
+        // Persist off the delivery path
+        messageService.persistMessage(message);
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+package org.jobrad.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.jobrad.backend.entity.Conversation;
+import org.jobrad.backend.event.ConversationEndedEvent;
+import org.jobrad.backend.event.ConversationStartedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Each guest's active conversation, kept current by the assignment events, so a chat message is
+ * matched to its conversation without asking the assignment store (a database read with the jdbc
+ * store). Guests this node has not seen assigned, such as after a restart or when another node
+ * assigned them, are looked up once and remembered. Entries expire after
+ * {@code chat.assignment.binding-ttl}, which bounds how long a conversation another node ended is
+ * still used here.
+ */
+@Component
+public class ConversationBindings {
+
+    private static final String GUEST_PREFIX = "Guest_";
+
+    private final Cache<String, Conversation> byGuest;
+
+    @Autowired
+    private AgentAssignmentService agentAssignmentService;
+
+    public ConversationBindings(@Value("${chat.assignment.binding-ttl:30s}") Duration ttl) {
+        this.byGuest = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // The active conversation between the two users, either of whom may be the guest, or null
+    public Conversation find(String userId, String peerId) {
+        if (userId == null || peerId == null) {
+            return null;
+        }
+        boolean userIsGuest = userId.startsWith(GUEST_PREFIX);
+        String guestId = userIsGuest ? userId : peerId;
+        String agentId = userIsGuest ? peerId : userId;
+        Conversation conversation = byGuest.getIfPresent(guestId);
+        if (conversation == null) {
+            conversation = agentAssignmentService.findActiveConversation(guestId, agentId);
+            if (conversation == null) {
+                return null;
+            }
+            byGuest.put(guestId, conversation);
+        }
+        return conversation.getAgentId().equals(agentId) ? conversation : null;
+    }
+
+    @EventListener
+    public void onConversationStarted(ConversationStartedEvent event) {
+        byGuest.put(event.conversation().getGuestId(), event.conversation());
+    }
+
+    @EventListener
+    public void onConversationEnded(ConversationEndedEvent event) {
+        Conversation ended = event.conversation();
+        byGuest.asMap().computeIfPresent(ended.getGuestId(),
+                (guestId, conversation) -> conversation.getId().equals(ended.getId()) ? null : conversation);
+    }
+}
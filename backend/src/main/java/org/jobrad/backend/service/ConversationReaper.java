@@ -0,0 +1,242 @@
+package org.jobrad.backend.service;
+
+import org.jobrad.backend.cluster.ClusterRouter;
+import org.jobrad.backend.cluster.PresenceRegistry;
+import org.jobrad.backend.dto.AssignmentMessageResponse;
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.entity.Conversation;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.event.ConversationEndedEvent;
+import org.jobrad.backend.event.ConversationStartedEvent;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.jobrad.backend.repository.MessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ends conversations nobody is taking part in any more, so their agent slot is recycled without
+ * waiting for a close callback that a half-open connection never delivers. A conversation is
+ * reaped when no message has been exchanged for {@code chat.reaper.idle-timeout}, or when its guest
+ * or agent has sent no frame, STOMP heartbeats included, for {@code chat.reaper.liveness-timeout}
+ * and holds no session on any node.
+ *
+ * <p>Recording activity only stamps a time. Each conversation sits in a delay queue once, under its
+ * earliest possible deadline; when that comes due the stamps are checked and the conversation is
+ * either reaped or queued again under its new deadline. A tick therefore only touches
+ * conversations whose deadline has passed, however many are active.
+ */
+@Component
+public class ConversationReaper implements ChannelInterceptor {
+
+    private final Logger logger = LoggerFactory.getLogger(ConversationReaper.class);
+
+    private final long idleTimeoutMillis;
+    private final long livenessTimeoutMillis;
+    // Tracked conversations by guest, who is in at most one
+    private final Map<String, Tracked> conversations = new ConcurrentHashMap<>();
+    // Last inbound frame of each participant of a tracked conversation
+    private final Map<String, LastSeen> participants = new ConcurrentHashMap<>();
+    private final DelayQueue<Tracked> deadlines = new DelayQueue<>();
+
+    // Lazy: the assignment service and messaging template need the broker this interceptor is installed on
+    @Autowired
+    @Lazy
+    private AgentAssignmentService agentAssignmentService;
+
+    @Autowired
+    @Lazy
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ClusterRouter clusterRouter;
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    public ConversationReaper(@Value("${chat.reaper.idle-timeout:15m}") Duration idleTimeout,
+                              @Value("${chat.reaper.liveness-timeout:90s}") Duration livenessTimeout) {
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.livenessTimeoutMillis = livenessTimeout.toMillis();
+    }
+
+    // A frame from the user, of any kind
+    public void recordPresence(String userId) {
+        LastSeen lastSeen = userId != null ? participants.get(userId) : null;
+        if (lastSeen != null) {
+            lastSeen.at = System.currentTimeMillis();
+        }
+    }
+
+    public void recordMessage(Conversation conversation, String sender) {
+        Tracked tracked = conversations.get(conversation.getGuestId());
+        if (tracked != null) {
+            tracked.lastMessage = System.currentTimeMillis();
+        }
+        recordPresence(sender);
+    }
+
+    // Every inbound STOMP frame, heartbeats included, shows its session's user is still there
+    @Override
+    public org.springframework.messaging.Message<?> preSend(org.springframework.messaging.Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId != null) {
+            recordPresence(clusterRouter.getStompUser(sessionId));
+        }
+        return message;
+    }
+
+    @EventListener
+    public void onConversationStarted(ConversationStartedEvent event) {
+        Conversation conversation = event.conversation();
+        long now = System.currentTimeMillis();
+        participants.computeIfAbsent(conversation.getGuestId(), id -> new LastSeen()).at = now;
+        participants.computeIfAbsent(conversation.getAgentId(), id -> new LastSeen()).at = now;
+        Tracked tracked = new Tracked(conversation, now);
+        conversations.put(conversation.getGuestId(), tracked);
+        tracked.deadline = now + Math.min(idleTimeoutMillis, livenessTimeoutMillis);
+        deadlines.offer(tracked);
+    }
+
+    // Its queue entry is left to expire; the tick skips entries that are no longer tracked
+    @EventListener
+    public void onConversationEnded(ConversationEndedEvent event) {
+        Conversation conversation = event.conversation();
+        conversations.computeIfPresent(conversation.getGuestId(),
+                (guestId, tracked) -> tracked.conversationId.equals(conversation.getId()) ? null : tracked);
+        // Agents keep their entry for their next conversations
+        participants.remove(conversation.getGuestId());
+    }
+
+    @Scheduled(fixedDelayString = "${chat.reaper.tick:1s}")
+    public void reap() {
+        Tracked tracked;
+        while ((tracked = deadlines.poll()) != null) {
+            if (conversations.get(tracked.guestId) != tracked) {
+                continue;
+            }
+            try {
+                check(tracked);
+            } catch (RuntimeException e) {
+                logger.error("ConversationReaper: Failed to check conversation {}: {}", tracked.conversationId, e.getMessage());
+                tracked.deadline = System.currentTimeMillis() + Math.min(idleTimeoutMillis, livenessTimeoutMillis);
+                deadlines.offer(tracked);
+            }
+        }
+    }
+
+    public int getTrackedCount() {
+        return conversations.size();
+    }
+
+    private void check(Tracked tracked) {
+        long now = System.currentTimeMillis();
+        long idleUntil = tracked.lastMessage + idleTimeoutMillis;
+        if (idleUntil <= now) {
+            // Messages sent through another node were only seen there
+            tracked.lastMessage = Math.max(tracked.lastMessage, lastPersistedMessage(tracked));
+            idleUntil = tracked.lastMessage + idleTimeoutMillis;
+        }
+        long guestUntil = liveUntil(tracked.guestId, now);
+        long agentUntil = liveUntil(tracked.agentId, now);
+        if (idleUntil <= now || guestUntil <= now) {
+            logger.info("ConversationReaper: Ending conversation {} of {} and {}, {}", tracked.conversationId,
+                    tracked.guestId, tracked.agentId, idleUntil <= now ? "idle" : "guest gone");
+            if (idleUntil <= now) {
+                chatMetrics.reapedIdle();
+            } else {
+                chatMetrics.reapedGuestGone();
+            }
+            agentAssignmentService.freeGuest(tracked.guestId);
+            // Notify guest
+            messagingTemplate.convertAndSendToUser(tracked.guestId, "/queue/assignment", new AssignmentMessageResponse(""));
+        } else if (agentUntil <= now) {
+            logger.info("ConversationReaper: Freeing agent {}, gone", tracked.agentId);
+            // Re-queues every guest of the agent
+            chatMetrics.reapedAgentGone();
+            agentAssignmentService.freeAgent(tracked.agentId);
+        } else {
+            tracked.deadline = Math.min(idleUntil, Math.min(guestUntil, agentUntil));
+            deadlines.offer(tracked);
+        }
+    }
+
+    /**
+     * When the user was last seen plus the liveness timeout. A user still holding a session
+     * somewhere counts as seen now: raw sessions send no heartbeats and close on their own idle
+     * timeout, and the user's STOMP heartbeats may be arriving at another node.
+     */
+    private long liveUntil(String userId, long now) {
+        LastSeen lastSeen = participants.get(userId);
+        long until = (lastSeen != null ? lastSeen.at : 0) + livenessTimeoutMillis;
+        if (until <= now && !presenceRegistry.nodesOf(userId).isEmpty()) {
+            if (lastSeen != null) {
+                lastSeen.at = now;
+            }
+            return now + livenessTimeoutMillis;
+        }
+        return until;
+    }
+
+    private long lastPersistedMessage(Tracked tracked) {
+        List<Message> latest = messageRepository.findInConversationBefore(
+                tracked.conversationId, MessageCursor.LATEST.timestamp(), MessageCursor.LATEST.id(), Limit.of(1));
+        return latest.isEmpty() ? 0 : latest.get(0).getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static final class LastSeen {
+        private volatile long at;
+    }
+
+    private static final class Tracked implements Delayed {
+        private final String guestId;
+        private final String agentId;
+        private final UUID conversationId;
+        private volatile long lastMessage;
+        // Only changed by the reaping thread while the entry is out of the queue
+        private long deadline;
+
+        private Tracked(Conversation conversation, long now) {
+            this.guestId = conversation.getGuestId();
+            this.agentId = conversation.getAgentId();
+            this.conversationId = conversation.getId();
+            this.lastMessage = now;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadline, ((Tracked) other).deadline);
+        }
+    }
+}
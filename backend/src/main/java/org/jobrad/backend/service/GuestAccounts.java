@@ -0,0 +1,82 @@
+package org.jobrad.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.jobrad.backend.entity.UserRole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores guests as users once they take part in a chat. Sign-up only mints a signed token, so a
+ * visitor who never writes leaves nothing behind. A guest's first message marks it here, and marked
+ * guests are inserted together every {@code chat.guests.flush-interval}; an insert skips guests that
+ * already have a row, so other nodes and restarts cannot duplicate them. Guests stored recently are
+ * remembered, so later messages cost a cache lookup.
+ */
+@Component
+public class GuestAccounts {
+
+    private static final String INSERT = "INSERT INTO users (id, username, password, role) SELECT ?, ?, '', ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM users WHERE username = ?)";
+
+    private final Logger logger = LoggerFactory.getLogger(GuestAccounts.class);
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Cache<String, Boolean> stored;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public GuestAccounts(@Value("${chat.guests.remembered:100000}") long remembered) {
+        this.stored = Caffeine.newBuilder().maximumSize(remembered).build();
+    }
+
+    public void recordActive(String guestId) {
+        if (stored.getIfPresent(guestId) == null) {
+            pending.add(guestId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.guests.flush-interval:1s}")
+    @PreDestroy
+    public void flush() {
+        List<String> batch = new ArrayList<>();
+        for (Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+            batch.add(it.next());
+            it.remove();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT, batch, 1000, (statement, guestId) -> {
+                statement.setObject(1, UUID.randomUUID());
+                statement.setString(2, guestId);
+                statement.setInt(3, UserRole.GUEST.ordinal());
+                statement.setString(4, guestId);
+            });
+            batch.forEach(guestId -> stored.put(guestId, Boolean.TRUE));
+        } catch (RuntimeException e) {
+            // Kept for the next flush
+            logger.error("GuestAccounts: Failed to store {} guests: {}", batch.size(), e.getMessage());
+            pending.addAll(batch);
+        }
+    }
+
+    public int pending() {
+        return pending.size();
+    }
+}
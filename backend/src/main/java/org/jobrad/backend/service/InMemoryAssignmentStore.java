@@ -0,0 +1,256 @@
+package org.jobrad.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.jobrad.backend.entity.Conversation;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Store for a single node. Each agent is indexed in a skip list ordered by free capacity, so the
+ * least-loaded agent is always the head. Whoever removes an agent's entry from the index owns that
+ * agent until it publishes the updated entry, which makes slot accounting atomic without a lock.
+ * Waiting guests sit in a {@link WaitingQueue}, which has a short lock of its own, and taking a guest
+ * out of it is the claim token. A guest that leaves after a claim took it but before the claim bound
+ * it is marked departed, and the claim undoes the binding when it sees the mark. State lives only in
+ * this JVM; after a restart it is rebuilt from the conversations still marked active, and the
+ * waiting queue starts empty.
+ */
+public class InMemoryAssignmentStore implements AssignmentStateStore {
+
+    private static final Comparator<AgentLoad> MOST_FREE_FIRST = Comparator
+            .comparingInt(AgentLoad::free).reversed()
+            .thenComparingLong(AgentLoad::seq)
+            .thenComparing(AgentLoad::agentId);
+
+    // A claim binds within microseconds of taking a guest; the mark only has to outlive that
+    private static final Duration DEPARTED_MARK = Duration.ofMinutes(1);
+
+    private final Map<String, Set<String>> agentToGuests = new ConcurrentHashMap<>();
+    private final Map<String, Conversation> guestConversations = new ConcurrentHashMap<>();
+    private final Map<String, AgentLoad> agentLoads = new ConcurrentHashMap<>();
+    private final NavigableSet<AgentLoad> agentsByFreeSlots = new ConcurrentSkipListSet<>(MOST_FREE_FIRST);
+    private final WaitingQueue waitingGuests = new WaitingQueue();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger totalCapacity = new AtomicInteger();
+    private final Cache<String, Boolean> departed = Caffeine.newBuilder().expireAfterWrite(DEPARTED_MARK).build();
+
+    @Override
+    public void registerAgent(String agentId, int capacity) {
+        AgentLoad load = new AgentLoad(agentId, 0, capacity, sequence.incrementAndGet());
+        if (agentLoads.putIfAbsent(agentId, load) == null) {
+            totalCapacity.addAndGet(capacity);
+            agentsByFreeSlots.add(load);
+        }
+    }
+
+    // Like adjustSlots, waits for a claimer holding the entry to put it back before removing it
+    @Override
+    public void unregisterAgent(String agentId) {
+        while (true) {
+            AgentLoad current = agentLoads.get(agentId);
+            if (current == null) {
+                return;
+            }
+            if (agentsByFreeSlots.remove(current)) {
+                agentLoads.remove(agentId, current);
+                totalCapacity.addAndGet(-current.capacity());
+                return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public boolean enqueue(String guestId, long sortKey) {
+        departed.invalidate(guestId);
+        return !guestConversations.containsKey(guestId) && waitingGuests.offer(guestId, sortKey);
+    }
+
+    // Marked before the caller looks the guest up, so a claim binding it after that lookup sees the mark
+    @Override
+    public Long dequeue(String guestId) {
+        Long sortKey = waitingGuests.remove(guestId);
+        if (sortKey == null) {
+            departed.put(guestId, Boolean.TRUE);
+        }
+        return sortKey;
+    }
+
+    @Override
+    public int positionOf(String guestId) {
+        return waitingGuests.positionOf(guestId);
+    }
+
+    @Override
+    public List<String> waitingGuests() {
+        return waitingGuests.snapshot();
+    }
+
+    @Override
+    public int capacity() {
+        return totalCapacity.get();
+    }
+
+    @Override
+    public int waitingCount() {
+        return waitingGuests.size();
+    }
+
+    @Override
+    public int activeCount() {
+        return guestConversations.size();
+    }
+
+    /**
+     * The agent entry is taken out of the index before a guest is claimed and always put back
+     * afterwards, so callers looping until this returns null re-check both sides and an offer
+     * racing with them is never stranded.
+     */
+    @Override
+    public Conversation claimNext() {
+        while (!waitingGuests.isEmpty() && hasFreeSlot()) {
+            AgentLoad load = agentsByFreeSlots.pollFirst();
+            if (load == null) {
+                return null;
+            }
+            if (load.free() <= 0) {
+                agentsByFreeSlots.add(load);
+                return null;
+            }
+            String guestId = waitingGuests.poll();
+            Conversation conversation = guestId != null ? tryBind(load.agentId(), guestId) : null;
+            if (conversation == null) {
+                agentsByFreeSlots.add(load);
+                continue;
+            }
+            publish(load.withActive(load.active() + 1));
+            return conversation;
+        }
+        return null;
+    }
+
+    // Only the caller that removes the guest's entry owns the teardown, so concurrent releases are idempotent
+    @Override
+    public Conversation release(String agentId, String guestId) {
+        Conversation conversation = guestConversations.get(guestId);
+        if (conversation == null || !conversation.getAgentId().equals(agentId)
+                || !guestConversations.remove(guestId, conversation)) {
+            return null;
+        }
+        guestsOfAgent(agentId).remove(guestId);
+        releaseSlot(agentId);
+        conversation.setEndedAt(LocalDateTime.now());
+        return conversation;
+    }
+
+    @Override
+    public Conversation findByGuest(String guestId) {
+        return guestConversations.get(guestId);
+    }
+
+    @Override
+    public Set<String> guestsOf(String agentId) {
+        return Set.copyOf(guestsOfAgent(agentId));
+    }
+
+    @Override
+    public void restore(List<Conversation> active, int capacity) {
+        for (Conversation conversation : active) {
+            registerAgent(conversation.getAgentId(), capacity);
+            guestsOfAgent(conversation.getAgentId()).add(conversation.getGuestId());
+            if (guestConversations.putIfAbsent(conversation.getGuestId(), conversation) == null) {
+                takeSlot(conversation.getAgentId());
+            }
+        }
+    }
+
+    // putIfAbsent on guestConversations is the only way a binding is created, so a guest never holds two agents
+    private Conversation tryBind(String agentId, String guestId) {
+        Set<String> guests = guestsOfAgent(agentId);
+        guests.add(guestId);
+        Conversation conversation = Conversation.builder()
+                .id(UUID.randomUUID())
+                .guestId(guestId)
+                .agentId(agentId)
+                .startedAt(LocalDateTime.now())
+                .build();
+        Conversation existing = guestConversations.putIfAbsent(guestId, conversation);
+        if (existing != null) {
+            if (!existing.getAgentId().equals(agentId)) {
+                guests.remove(guestId);
+            }
+            return null;
+        }
+        if (departed.getIfPresent(guestId) != null && guestConversations.remove(guestId, conversation)) {
+            // Left after it was taken from the queue; a release that removed the binding first owns the teardown
+            guests.remove(guestId);
+            return null;
+        }
+        return conversation;
+    }
+
+    private void releaseSlot(String agentId) {
+        adjustSlots(agentId, -1);
+    }
+
+    private void takeSlot(String agentId) {
+        adjustSlots(agentId, 1);
+    }
+
+    /**
+     * The entry is briefly absent from the index while another thread owns the agent, so this spins
+     * until it can take ownership itself.
+     */
+    private void adjustSlots(String agentId, int delta) {
+        while (true) {
+            AgentLoad current = agentLoads.get(agentId);
+            if (current == null) {
+                return;
+            }
+            if (agentsByFreeSlots.remove(current)) {
+                publish(current.withActive(current.active() + delta));
+                return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private void publish(AgentLoad load) {
+        agentLoads.put(load.agentId(), load);
+        agentsByFreeSlots.add(load);
+    }
+
+    private boolean hasFreeSlot() {
+        for (AgentLoad load : agentsByFreeSlots) {
+            return load.free() > 0;
+        }
+        return false;
+    }
+
+    private Set<String> guestsOfAgent(String agentId) {
+        return agentToGuests.computeIfAbsent(agentId, id -> ConcurrentHashMap.newKeySet());
+    }
+
+    private record AgentLoad(String agentId, int active, int capacity, long seq) {
+
+        int free() {
+            return capacity - active;
+        }
+
+        AgentLoad withActive(int active) {
+            return new AgentLoad(agentId, active, capacity, seq);
+        }
+    }
+}
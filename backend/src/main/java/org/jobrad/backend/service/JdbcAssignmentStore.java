@@ -0,0 +1,208 @@
+package org.jobrad.backend.service;
+
+import org.jobrad.backend.entity.Conversation;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Assignment state in the database, shared by every node and kept across restarts. Claims run in
+ * one transaction that locks the chosen waiting guest and agent rows with {@code SKIP LOCKED}, so
+ * concurrent claimers on any node pick different rows instead of queueing behind each other.
+ * Candidates are read unlocked and then locked one by one by key, because some databases apply
+ * {@code FETCH FIRST} before skipping locked rows. Tables are {@code agent_slot},
+ * {@code waiting_guest} and {@code active_assignment}.
+ */
+public class JdbcAssignmentStore implements AssignmentStateStore {
+
+    // Rows read per claim attempt; more than the number of nodes likely to claim at once
+    private static final int CANDIDATES = 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public JdbcAssignmentStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Called on every agent poll, so an agent that is already registered costs one index lookup
+    @Override
+    public void registerAgent(String agentId, int capacity) {
+        try {
+            jdbcTemplate.update("INSERT INTO agent_slot (agent_id, capacity, active, seq) "
+                    + "SELECT ?, ?, 0, COALESCE(MAX(seq), 0) + 1 FROM agent_slot "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM agent_slot WHERE agent_id = ?)", agentId, capacity, agentId);
+        } catch (DataIntegrityViolationException e) {
+            // Registered by another node between the check and the insert
+        }
+    }
+
+    // Waits for a claim holding the agent's row, so a guest it bound is seen by the release that follows
+    @Override
+    public void unregisterAgent(String agentId) {
+        jdbcTemplate.update("DELETE FROM agent_slot WHERE agent_id = ?", agentId);
+    }
+
+    @Override
+    public boolean enqueue(String guestId, long sortKey) {
+        if (findByGuest(guestId) != null) {
+            return false;
+        }
+        try {
+            return jdbcTemplate.update("INSERT INTO waiting_guest (guest_id, sort_key) VALUES (?, ?)", guestId, sortKey) == 1;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Long dequeue(String guestId) {
+        return transactionTemplate.execute(status -> {
+            List<Long> sortKey = jdbcTemplate.queryForList(
+                    "SELECT sort_key FROM waiting_guest WHERE guest_id = ? FOR UPDATE", Long.class, guestId);
+            if (sortKey.isEmpty()) {
+                return null;
+            }
+            jdbcTemplate.update("DELETE FROM waiting_guest WHERE guest_id = ?", guestId);
+            return sortKey.get(0);
+        });
+    }
+
+    // Counts the index entries ahead of the guest, so the cost grows with its position rather than
+    // O(log n) as in the in-memory queue; databases keep no per-subtree counts to do better
+    @Override
+    public int positionOf(String guestId) {
+        Integer position = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM waiting_guest w JOIN waiting_guest g ON g.guest_id = ? "
+                        + "WHERE w.sort_key < g.sort_key OR (w.sort_key = g.sort_key AND w.guest_id <= g.guest_id)",
+                Integer.class, guestId);
+        return position != null ? position : 0;
+    }
+
+    @Override
+    public List<String> waitingGuests() {
+        return jdbcTemplate.queryForList("SELECT guest_id FROM waiting_guest ORDER BY sort_key, guest_id", String.class);
+    }
+
+    @Override
+    public int capacity() {
+        Integer capacity = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(capacity), 0) FROM agent_slot", Integer.class);
+        return capacity != null ? capacity : 0;
+    }
+
+    @Override
+    public int waitingCount() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM waiting_guest", Integer.class);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public int activeCount() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM active_assignment", Integer.class);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public Conversation claimNext() {
+        while (true) {
+            Claim claim = transactionTemplate.execute(status -> {
+                String guestId = lockFirst(
+                        "SELECT guest_id FROM waiting_guest ORDER BY sort_key, guest_id FETCH FIRST " + CANDIDATES + " ROWS ONLY",
+                        "SELECT guest_id FROM waiting_guest WHERE guest_id = ? FOR UPDATE SKIP LOCKED");
+                if (guestId == null) {
+                    return Claim.NONE;
+                }
+                String agentId = lockFirst(
+                        "SELECT agent_id FROM agent_slot WHERE active < capacity "
+                                + "ORDER BY capacity - active DESC, seq, agent_id FETCH FIRST " + CANDIDATES + " ROWS ONLY",
+                        "SELECT agent_id FROM agent_slot WHERE agent_id = ? AND active < capacity FOR UPDATE SKIP LOCKED");
+                if (agentId == null) {
+                    return Claim.NONE;
+                }
+                jdbcTemplate.update("DELETE FROM waiting_guest WHERE guest_id = ?", guestId);
+                if (findByGuest(guestId) != null) {
+                    // Re-queued while an earlier claim was binding it; drop the stale entry and try again
+                    return Claim.RETRY;
+                }
+                Conversation conversation = Conversation.builder()
+                        .id(UUID.randomUUID())
+                        .guestId(guestId)
+                        .agentId(agentId)
+                        .startedAt(LocalDateTime.now())
+                        .build();
+                jdbcTemplate.update("INSERT INTO active_assignment (guest_id, agent_id, conversation_id, started_at) VALUES (?, ?, ?, ?)",
+                        guestId, agentId, conversation.getId(), Timestamp.valueOf(conversation.getStartedAt()));
+                jdbcTemplate.update("UPDATE agent_slot SET active = active + 1 WHERE agent_id = ?", agentId);
+                return new Claim(conversation);
+            });
+            if (claim != Claim.RETRY) {
+                return claim.conversation();
+            }
+        }
+    }
+
+    @Override
+    public Conversation release(String agentId, String guestId) {
+        return transactionTemplate.execute(status -> {
+            List<Conversation> bound = jdbcTemplate.query(
+                    "SELECT conversation_id, started_at FROM active_assignment WHERE guest_id = ? AND agent_id = ? FOR UPDATE",
+                    (rs, row) -> Conversation.builder()
+                            .id(rs.getObject("conversation_id", UUID.class))
+                            .guestId(guestId)
+                            .agentId(agentId)
+                            .startedAt(rs.getTimestamp("started_at").toLocalDateTime())
+                            .endedAt(LocalDateTime.now())
+                            .build(),
+                    guestId, agentId);
+            if (bound.isEmpty()) {
+                return null;
+            }
+            jdbcTemplate.update("DELETE FROM active_assignment WHERE guest_id = ?", guestId);
+            jdbcTemplate.update("UPDATE agent_slot SET active = active - 1 WHERE agent_id = ? AND active > 0", agentId);
+            return bound.get(0);
+        });
+    }
+
+    @Override
+    public Conversation findByGuest(String guestId) {
+        List<Conversation> bound = jdbcTemplate.query(
+                "SELECT agent_id, conversation_id, started_at FROM active_assignment WHERE guest_id = ?",
+                (rs, row) -> Conversation.builder()
+                        .id(rs.getObject("conversation_id", UUID.class))
+                        .guestId(guestId)
+                        .agentId(rs.getString("agent_id"))
+                        .startedAt(rs.getTimestamp("started_at").toLocalDateTime())
+                        .build(),
+                guestId);
+        return bound.isEmpty() ? null : bound.get(0);
+    }
+
+    @Override
+    public Set<String> guestsOf(String agentId) {
+        return Set.copyOf(jdbcTemplate.queryForList("SELECT guest_id FROM active_assignment WHERE agent_id = ?", String.class, agentId));
+    }
+
+    // Reads candidate keys without locks, then returns the first one this transaction could lock
+    private String lockFirst(String candidatesSql, String lockSql) {
+        for (String key : jdbcTemplate.queryForList(candidatesSql, String.class)) {
+            List<String> locked = jdbcTemplate.queryForList(lockSql, String.class, key);
+            if (!locked.isEmpty()) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private record Claim(Conversation conversation) {
+        static final Claim NONE = new Claim(null);
+        static final Claim RETRY = new Claim(null);
+    }
+}
@@ -0,0 +1,155 @@
+package org.jobrad.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.entity.Conversation;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.event.ConversationEndedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Read-through cache of the most recent messages per user. Entries are loaded from the database on
+ * first read, kept current by {@link #append(Message)} on every new message, and dropped when the
+ * user's conversation ends or the entry has been idle or pushed out by size. Reads that reach past
+ * the cached window return {@code null} so the caller falls back to the database.
+ */
+@Component
+public class MessageHistoryCache {
+
+    private final Cache<String, RecentMessages> cache;
+    private final int messagesPerUser;
+    private final LongAdder fallbacks = new LongAdder();
+
+    public MessageHistoryCache(@Value("${chat.cache.max-users:10000}") long maxUsers,
+                               @Value("${chat.cache.messages-per-user:100}") int messagesPerUser,
+                               @Value("${chat.cache.idle-timeout:30m}") Duration idleTimeout) {
+        this.messagesPerUser = messagesPerUser;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(idleTimeout)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Adds a new message to the cached history of both participants, if cached. Must run before the
+     * message is handed to persistence, so a concurrent load either sees it in the database or has
+     * finished and receives it here.
+     */
+    public void append(Message message) {
+        cache.asMap().computeIfPresent(message.getSender(), (userId, recent) -> recent.with(message, messagesPerUser));
+        cache.asMap().computeIfPresent(message.getRecipient(), (userId, recent) -> recent.with(message, messagesPerUser));
+    }
+
+    /**
+     * Up to {@code rows} messages in request direction: ascending after {@code after}, otherwise
+     * descending from {@code before} (or the newest message). Returns {@code null} if the cached
+     * window cannot answer the request. {@code loader} reads the newest n messages of a user,
+     * newest first.
+     */
+    public List<Message> find(String userId, MessageCursor after, MessageCursor before, int rows,
+                              BiFunction<String, Integer, List<Message>> loader) {
+        RecentMessages recent = cache.get(userId, id -> RecentMessages.load(loader.apply(id, messagesPerUser + 1), messagesPerUser));
+        List<Message> result = after != null ? recent.after(after, rows) : recent.before(before, rows);
+        if (result == null) {
+            fallbacks.increment();
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onConversationEnded(ConversationEndedEvent event) {
+        Conversation conversation = event.conversation();
+        cache.invalidate(conversation.getGuestId());
+        cache.invalidate(conversation.getAgentId());
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    // Reads that were cached but reached past the cached window
+    public long fallbacks() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * Immutable, ascending window of a user's newest messages. {@code complete} means the window holds
+     * the user's entire history, so older-page reads can be answered from it as well.
+     */
+    private record RecentMessages(List<Message> messages, boolean complete) {
+
+        static RecentMessages load(List<Message> newestFirst, int capacity) {
+            boolean complete = newestFirst.size() <= capacity;
+            List<Message> ascending = new ArrayList<>(newestFirst.subList(0, Math.min(capacity, newestFirst.size())));
+            Collections.reverse(ascending);
+            return new RecentMessages(List.copyOf(ascending), complete);
+        }
+
+        RecentMessages with(Message message, int capacity) {
+            MessageCursor cursor = cursorOf(message);
+            int position = messages.size();
+            while (position > 0 && MessageCursor.ORDER.compare(cursorOf(messages.get(position - 1)), cursor) >= 0) {
+                if (messages.get(position - 1).getId().equals(message.getId())) {
+                    return this;
+                }
+                position--;
+            }
+            List<Message> updated = new ArrayList<>(messages.size() + 1);
+            updated.addAll(messages.subList(0, position));
+            updated.add(message);
+            updated.addAll(messages.subList(position, messages.size()));
+            boolean trimmed = updated.size() > capacity;
+            if (trimmed) {
+                updated.remove(0);
+            }
+            return new RecentMessages(List.copyOf(updated), complete && !trimmed);
+        }
+
+        List<Message> after(MessageCursor after, int rows) {
+            if (!complete && (messages.isEmpty() || MessageCursor.ORDER.compare(after, cursorOf(messages.get(0))) < 0)) {
+                return null;
+            }
+            List<Message> result = new ArrayList<>(rows);
+            for (Message message : messages) {
+                if (MessageCursor.ORDER.compare(cursorOf(message), after) > 0) {
+                    result.add(message);
+                    if (result.size() == rows) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+
+        List<Message> before(MessageCursor before, int rows) {
+            List<Message> result = new ArrayList<>(rows);
+            for (int i = messages.size() - 1; i >= 0 && result.size() < rows; i--) {
+                Message message = messages.get(i);
+                if (before == null || MessageCursor.ORDER.compare(cursorOf(message), before) < 0) {
+                    result.add(message);
+                }
+            }
+            return result.size() == rows || complete ? result : null;
+        }
+
+        private static MessageCursor cursorOf(Message message) {
+            return new MessageCursor(message.getTimestamp(), message.getId());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.jobrad.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side message ids so messages can be delivered before they are persisted and inserted in
+ * JDBC batches. Ids are time ordered: 41 bits of milliseconds since 2025-01-01, 10 bits of node id
+ * and a 12 bit per-millisecond sequence. A sequence overflow borrows the next millisecond, so ids
+ * stay unique and increasing even if the clock stalls or steps back.
+ */
+@Component
+public class MessageIdGenerator {
+    private static final long EPOCH = 1735689600000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long NODE_MASK = (1L << NODE_BITS) - 1;
+
+    // Packed (millis << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong state = new AtomicLong();
+    private final long nodeBits;
+
+    public MessageIdGenerator(@Value("${chat.node-id:0}") int nodeId) {
+        if (nodeId < 0 || nodeId >= (1 << NODE_BITS)) {
+            throw new IllegalArgumentException("chat.node-id must be between 0 and " + ((1 << NODE_BITS) - 1));
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    // Whether the id was handed out by a generator with this node id
+    public boolean isOwn(long id) {
+        return (id & (NODE_MASK << SEQUENCE_BITS)) == nodeBits;
+    }
+
+    public long nextId() {
+        while (true) {
+            long previous = state.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            long next = now > (previous >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : previous + 1;
+            if (state.compareAndSet(previous, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+}
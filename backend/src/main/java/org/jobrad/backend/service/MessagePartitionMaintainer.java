@@ -0,0 +1,44 @@
+package org.jobrad.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps monthly partitions of the PostgreSQL message table in place ahead of the clock. The table has
+ * no default partition, so a message for a month without one could not be stored. Runs at startup
+ * and then every {@code chat.persistence.partition-check-interval}; existing partitions are skipped,
+ * so every node may run it.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.persistence.partitioned", havingValue = "true")
+public class MessagePartitionMaintainer {
+
+    private final Logger logger = LoggerFactory.getLogger(MessagePartitionMaintainer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+
+    public MessagePartitionMaintainer(JdbcTemplate jdbcTemplate,
+                                      @Value("${chat.persistence.partition-months-ahead:3}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.persistence.partition-check-interval:6h}")
+    public void createPartitions() {
+        try {
+            Integer created = jdbcTemplate.queryForObject("SELECT create_message_partitions(?)", Integer.class, monthsAhead);
+            if (created != null && created > 0) {
+                logger.info("MessagePartitionMaintainer: Created {} message partitions", created);
+            }
+        } catch (RuntimeException e) {
+            // Concurrent nodes may race to create the same partition; the next run retries
+            logger.error("MessagePartitionMaintainer: Failed to create message partitions: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.jobrad.backend.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind persistence for chat messages. Messages are delivered first and then buffered here;
+ * a single flusher thread inserts them in JDBC batches once a batch fills up or the oldest buffered
+ * message has waited {@code chat.persistence.flush-interval-ms}. When the buffer is full the caller
+ * waits briefly and then persists the message itself, so producers slow down instead of losing data.
+ * Stopping the lifecycle drains everything that is still buffered.
+ */
+@Component
+public class MessagePersistenceQueue implements SmartLifecycle {
+
+    private final Logger logger = LoggerFactory.getLogger(MessagePersistenceQueue.class);
+
+    private final BlockingQueue<Message> buffer;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMillis;
+    private final AtomicLong buffered = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushedCondition = flushLock.newCondition();
+    private final ChatMetrics chatMetrics;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MessagePersistenceQueue(PlatformTransactionManager transactionManager,
+                                   @Value("${chat.persistence.buffer-capacity:10000}") int bufferCapacity,
+                                   @Value("${chat.persistence.batch-size:100}") int batchSize,
+                                   @Value("${chat.persistence.flush-interval-ms:20}") long flushIntervalMillis,
+                                   @Value("${chat.persistence.offer-timeout-ms:50}") long offerTimeoutMillis,
+                                   ChatMetrics chatMetrics) {
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.chatMetrics = chatMetrics;
+    }
+
+    public void enqueue(Message message) {
+        if (!running) {
+            persist(List.of(message));
+            return;
+        }
+        boolean accepted;
+        try {
+            accepted = buffer.offer(message, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            logger.warn("MessagePersistenceQueue: Buffer full, persisting message {} on the caller thread", message.getId());
+            persist(List.of(message));
+            return;
+        }
+        buffered.incrementAndGet();
+        if (!running) {
+            // Lost the race with stop(); make sure nothing is left behind
+            drainRemaining();
+        }
+    }
+
+    /**
+     * Blocks until every message buffered before this call has been committed, so history reads
+     * see what was already delivered. Gives up after {@code timeoutMillis}.
+     */
+    public void awaitFlushed(long timeoutMillis) {
+        long target = buffered.get();
+        if (flushed.get() >= target) {
+            return;
+        }
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        flushLock.lock();
+        try {
+            while (flushed.get() < target) {
+                if (nanos <= 0) {
+                    logger.debug("MessagePersistenceQueue: Timed out waiting for pending messages to flush");
+                    return;
+                }
+                nanos = flushedCondition.awaitNanos(nanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public int pending() {
+        return buffer.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = new Thread(this::runFlusher, "message-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainRemaining();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop after the web server so messages accepted during graceful shutdown still reach the buffer
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void runFlusher() {
+        while (running || !buffer.isEmpty()) {
+            try {
+                Message first = buffer.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Message> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Message next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("MessagePersistenceQueue: Flusher error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void drainRemaining() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    private void flush(List<Message> batch) {
+        try {
+            persist(batch);
+        } finally {
+            flushed.addAndGet(batch.size());
+            flushLock.lock();
+            try {
+                flushedCondition.signalAll();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    private void persist(List<Message> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(entityManager::persist));
+            chatMetrics.recordPersist(start);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                logger.error("MessagePersistenceQueue: Dropping message {}: {}", batch.get(0).getId(), e.getMessage());
+                chatMetrics.persistFailed();
+                return;
+            }
+            // Retry row by row so one bad message does not take the whole batch with it
+            logger.warn("MessagePersistenceQueue: Batch of {} failed, retrying individually: {}", batch.size(), e.getMessage());
+            batch.forEach(message -> persist(List.of(message)));
+        }
+    }
+}
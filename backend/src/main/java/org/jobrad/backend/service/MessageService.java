@@ -1,13 +1,30 @@
 package org.jobrad.backend.service;
 
-import org.jobrad.backend.dto.MessageRequest;
-import org.jobrad.backend.dto.MessageResponse;
+import org.jobrad.backend.dto.MessageCacheStatsResponse;
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.dto.MessagePageResponse;
+import org.jobrad.backend.dto.MessageSearchResponse;
 import org.jobrad.backend.entity.Message;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.UUID;
 
 public interface MessageService {
-    void saveAndSendMessage(MessageRequest message);
+    // Caches and persists a message that has already been delivered
+    void persistMessage(Message message);
 
-    List<MessageResponse> getMessagesForUser(String userId);
+    /**
+     * One page of a user's history, oldest first. With {@code after} set, returns only messages newer
+     * than the cursor; otherwise returns the newest messages older than {@code before} (or overall).
+     */
+    MessagePageResponse getMessagesForUser(String userId, MessageCursor after, MessageCursor before, int limit);
+
+    // Same paging contract as getMessagesForUser, scoped to a single conversation
+    MessagePageResponse getMessagesForConversation(UUID conversationId, MessageCursor after, MessageCursor before, int limit);
+
+    // Messages matching a full-text query, newest first, optionally scoped to a user and a time range
+    MessageSearchResponse searchMessages(String query, String userId, LocalDateTime from, LocalDateTime to,
+                                         MessageCursor before, int limit);
+
+    MessageCacheStatsResponse getCacheStats();
 }
@@ -1,69 +1,207 @@
 package org.jobrad.backend.service;
 
-import org.jobrad.backend.dto.MessageRequest;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.jobrad.backend.archive.MessageArchive;
+import org.jobrad.backend.dto.MessageCacheStatsResponse;
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.dto.MessagePageResponse;
 import org.jobrad.backend.dto.MessageResponse;
+import org.jobrad.backend.dto.MessageSearchResponse;
 import org.jobrad.backend.entity.Message;
 import org.jobrad.backend.entity.UserRole;
 import org.jobrad.backend.repository.MessageRepository;
+import org.jobrad.backend.search.MessageSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.UUID;
 
 @Service
 public class MessageServiceImpl implements MessageService {
 
+    private static final long HISTORY_FLUSH_TIMEOUT_MS = 1000;
+    private static final Comparator<Message> HISTORY_ORDER = Comparator
+            .comparing(Message::getTimestamp)
+            .thenComparing(Message::getId);
+
     @Autowired
     private MessageRepository messageRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private MessagePersistenceQueue messagePersistenceQueue;
+
+    @Autowired
+    private MessageHistoryCache messageHistoryCache;
+
+    @Autowired
+    private MessageArchive messageArchive;
+
+    @Autowired
+    private MessageSearchIndex messageSearchIndex;
+
+    @Autowired
+    private GuestAccounts guestAccounts;
+
+    @Override
+    public void persistMessage(Message message) {
+        messageHistoryCache.append(message);
+        messagePersistenceQueue.enqueue(message);
+        messageSearchIndex.index(message);
+        if (message.getSenderType() == UserRole.GUEST) {
+            guestAccounts.recordActive(message.getSender());
+        }
+    }
+
+    @Override
+    public MessagePageResponse getMessagesForUser(String userId, MessageCursor after, MessageCursor before, int limit) {
+        // One extra row tells whether another page exists
+        List<Message> cached = messageHistoryCache.find(userId, after, before, limit + 1, this::loadRecent);
+        if (cached != null) {
+            return toPage(cached, after, before, limit);
+        }
+        messagePersistenceQueue.awaitFlushed(HISTORY_FLUSH_TIMEOUT_MS);
+        List<Message> page;
+        if (after != null) {
+            Limit fetch = Limit.of(limit + 1);
+            page = merge(
+                    messageRepository.findSentAfter(userId, after.timestamp(), after.id(), fetch),
+                    messageRepository.findReceivedAfter(userId, after.timestamp(), after.id(), fetch),
+                    HISTORY_ORDER, limit + 1);
+            MessageCursor archived = messageArchive.newest();
+            if (archived != null && MessageCursor.ORDER.compare(archived, after) > 0) {
+                page = merge(page, messageArchive.findForUserAfter(userId, after, limit + 1), HISTORY_ORDER, limit + 1);
+            }
+        } else {
+            page = findBefore(userId, before != null ? before : MessageCursor.LATEST, limit + 1);
+        }
+        return toPage(page, after, before, limit);
+    }
+
+    @Override
+    public MessagePageResponse getMessagesForConversation(UUID conversationId, MessageCursor after, MessageCursor before, int limit) {
+        messagePersistenceQueue.awaitFlushed(HISTORY_FLUSH_TIMEOUT_MS);
+        Limit fetch = Limit.of(limit + 1);
+        MessageCursor from = before != null ? before : MessageCursor.LATEST;
+        List<Message> page = after != null
+                ? messageRepository.findInConversationAfter(conversationId, after.timestamp(), after.id(), fetch)
+                : messageRepository.findInConversationBefore(conversationId, from.timestamp(), from.id(), fetch);
+        // As for users: only a page reaching back past the newest archived message reads the archive
+        MessageCursor archived = messageArchive.newest();
+        if (archived == null) {
+            return toPage(page, after, before, limit);
+        }
+        if (after != null) {
+            if (MessageCursor.ORDER.compare(archived, after) > 0) {
+                page = merge(page, messageArchive.findForConversationAfter(conversationId, after, limit + 1),
+                        HISTORY_ORDER, limit + 1);
+            }
+        } else if (page.size() <= limit
+                || MessageCursor.ORDER.compare(archived, cursorOf(page.get(page.size() - 1))) > 0) {
+            page = merge(page, messageArchive.findForConversationBefore(conversationId, from, limit + 1),
+                    HISTORY_ORDER.reversed(), limit + 1);
+        }
+        return toPage(page, after, before, limit);
+    }
 
     @Override
-    public void saveAndSendMessage(MessageRequest message) {
-        Message messageEntity = convertToEntity(message);
-        Message save = messageRepository.save(messageEntity);
-
-        // Send to recipient
-        messagingTemplate.convertAndSendToUser(
-                message.getRecipient(),
-                "/queue/messages",
-                message
-        );
-        // Send to sender (for confirmation)
-        messagingTemplate.convertAndSendToUser(
-                message.getSender(),
-                "/queue/messages",
-                message
-        );
+    public MessageSearchResponse searchMessages(String query, String userId, LocalDateTime from, LocalDateTime to,
+                                                MessageCursor before, int limit) {
+        List<Message> rows = messageSearchIndex.search(query, userId, from, to, before, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<Message> page = hasMore ? rows.subList(0, limit) : rows;
+        List<MessageResponse> messages = new ArrayList<>(page.size());
+        for (Message message : page) {
+            messages.add(convertToResponseDto(message));
+        }
+        String nextCursor = hasMore ? cursorOf(page.get(page.size() - 1)).encode() : null;
+        return new MessageSearchResponse(messages, nextCursor, hasMore);
     }
 
     @Override
-    public List<MessageResponse> getMessagesForUser(String userId) {
-        List<Message> messages = messageRepository.findBySenderOrRecipientOrderByTimestampAsc(userId, userId);
-        return messages.stream().map(this::convertToResponseDto).collect(Collectors.toList());
+    public MessageCacheStatsResponse getCacheStats() {
+        CacheStats stats = messageHistoryCache.stats();
+        return new MessageCacheStatsResponse(messageHistoryCache.size(), stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount(), messageHistoryCache.fallbacks());
+    }
+
+    // Newest messages of a user, newest first, for filling the history cache
+    private List<Message> loadRecent(String userId, int count) {
+        messagePersistenceQueue.awaitFlushed(HISTORY_FLUSH_TIMEOUT_MS);
+        return findBefore(userId, MessageCursor.LATEST, count);
+    }
+
+    // Up to count messages of a user older than from, newest first, from the table and, once it runs out, the archive
+    private List<Message> findBefore(String userId, MessageCursor from, int count) {
+        Limit fetch = Limit.of(count);
+        List<Message> page = merge(
+                messageRepository.findSentBefore(userId, from.timestamp(), from.id(), fetch),
+                messageRepository.findReceivedBefore(userId, from.timestamp(), from.id(), fetch),
+                HISTORY_ORDER.reversed(), count);
+        // A full page whose oldest message is newer than everything archived needs nothing from the archive
+        MessageCursor archived = messageArchive.newest();
+        if (archived != null && (page.size() < count
+                || MessageCursor.ORDER.compare(archived, cursorOf(page.get(page.size() - 1))) > 0)) {
+            page = merge(page, messageArchive.findForUserBefore(userId, from, count), HISTORY_ORDER.reversed(), count);
+        }
+        return page;
+    }
+
+    // Rows come in request direction with one extra row to detect another page; the result is oldest first
+    private MessagePageResponse toPage(List<Message> rows, MessageCursor after, MessageCursor before, int limit) {
+        boolean hasMore = rows.size() > limit;
+        List<Message> page = new ArrayList<>(hasMore ? rows.subList(0, limit) : rows);
+        if (after == null) {
+            Collections.reverse(page);
+        }
+
+        List<MessageResponse> messages = new ArrayList<>(page.size());
+        for (Message message : page) {
+            messages.add(convertToResponseDto(message));
+        }
+        String beforeCursor = page.isEmpty() ? (before != null ? before.encode() : null) : cursorOf(page.get(0)).encode();
+        String afterCursor = page.isEmpty() ? (after != null ? after.encode() : null) : cursorOf(page.get(page.size() - 1)).encode();
+        return new MessagePageResponse(messages, beforeCursor, afterCursor, hasMore);
+    }
+
+    // Merges two lists already sorted by order, dropping duplicates (a message a user sent to themselves,
+    // or one both in the table and in the archive)
+    private static List<Message> merge(List<Message> sent, List<Message> received, Comparator<Message> order, int limit) {
+        List<Message> merged = new ArrayList<>(Math.min(limit, sent.size() + received.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < sent.size() || j < received.size())) {
+            Message next;
+            if (j >= received.size() || (i < sent.size() && order.compare(sent.get(i), received.get(j)) <= 0)) {
+                next = sent.get(i++);
+            } else {
+                next = received.get(j++);
+            }
+            if (merged.isEmpty() || !merged.get(merged.size() - 1).getId().equals(next.getId())) {
+                merged.add(next);
+            }
+        }
+        return merged;
+    }
+
+    private static MessageCursor cursorOf(Message message) {
+        return new MessageCursor(message.getTimestamp(), message.getId());
     }
 
     private MessageResponse convertToResponseDto(Message message) {
         return MessageResponse.builder()
+                .id(message.getId())
                 .sender(message.getSender())
                 .recipient(message.getRecipient())
                 .senderType(message.getSenderType().name())
                 .content(message.getContent())
                 .timestamp(message.getTimestamp())
-                .build();
-    }
-
-    private Message convertToEntity(MessageRequest message) {
-        return Message.builder()
-                .sender(message.getSender())
-                .recipient(message.getRecipient())
-                .senderType(UserRole.valueOf(message.getSenderType()))
-                .content(message.getContent())
-                .timestamp(message.getTimestamp())
+                .conversationId(message.getConversationId())
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package org.jobrad.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deletes the user rows of anonymous guests that have no message in the message table, in batches of
+ * {@code chat.guests.purge-batch-size}. Sign-up used to insert a row for every visitor; guests are now
+ * stored only by {@link GuestAccounts} once they write, so this clears the rows left by the old
+ * scheme and by guests whose messages have been archived. A guest row is the account that owns the
+ * guest's history and that a later registration converts by setting a password; sign-in and queue
+ * priority come from the token. Only unconverted rows owning no stored message are purged, so no
+ * history or account is lost. Safe to run on every node.
+ */
+@Component
+public class StaleGuestPurger {
+
+    private static final String PURGE = "DELETE FROM users WHERE id IN (SELECT u.id FROM users u "
+            + "WHERE u.username LIKE 'Guest\\_%' ESCAPE '\\' AND u.password = '' "
+            + "AND NOT EXISTS (SELECT 1 FROM message m WHERE m.sender = u.username) LIMIT ?)";
+
+    private final Logger logger = LoggerFactory.getLogger(StaleGuestPurger.class);
+
+    private final int batchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public StaleGuestPurger(@Value("${chat.guests.purge-batch-size:10000}") int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${chat.guests.purge-interval:1h}", fixedDelayString = "${chat.guests.purge-interval:1h}")
+    public void purge() {
+        int purged = 0;
+        try {
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(PURGE, batchSize);
+                purged += deleted;
+            } while (deleted == batchSize);
+        } catch (RuntimeException e) {
+            logger.error("StaleGuestPurger: Purge stopped after {} guests: {}", purged, e.getMessage());
+            return;
+        }
+        if (purged > 0) {
+            logger.info("StaleGuestPurger: Purged {} stale guest users", purged);
+        }
+    }
+}
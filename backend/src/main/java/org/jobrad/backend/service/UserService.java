@@ -1,6 +1,7 @@
 package org.jobrad.backend.service;
 
 public interface UserService {
+    // A new guest id; nothing is stored until the guest sends a message
     String createAnonymousCustomer();
 
     String assignAgent(String customerId);
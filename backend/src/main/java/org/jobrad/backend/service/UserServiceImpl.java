@@ -32,15 +32,8 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public String createAnonymousCustomer() {
-        String guestUsername = "Guest_" + UUID.randomUUID().toString().substring(0, 8);
-        User customer = User.builder()
-                .id(UUID.randomUUID())
-                .username(guestUsername)
-                .password("") // No password for anonymous users
-                .role(UserRole.CUSTOMER)
-                .build();
-        userRepository.save(customer);
-        return guestUsername;
+        // The signed token is the guest's identity; GuestAccounts stores it once it writes
+        return "Guest_" + UUID.randomUUID().toString().substring(0, 8);
     }
 
     @Override
@@ -0,0 +1,235 @@
+package org.jobrad.backend.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Waiting guests ordered by sort key, then arrival. A treap whose nodes count their subtree, so
+ * offering, removing an arbitrary guest, taking the head and looking up a guest's position are all
+ * O(log n) expected, however long the queue is.
+ *
+ * <p>Changes and reads of the tree share one {@link ReentrantLock}, which, unlike a monitor, does not
+ * pin a virtual thread that waits for it. Guests arriving and being claimed at the same moment still
+ * take turns, but each hold is a few pointer updates with no I/O. A lock-free ordered set such as
+ * {@code ConcurrentSkipListSet} would remove that, but it cannot count the guests ahead of one in
+ * less than O(n). {@link #isEmpty} and {@link #size} read a volatile count without the lock, so claims
+ * finding nobody waiting, the common case while agents have free slots, never contend.
+ */
+final class WaitingQueue {
+
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final SplittableRandom random = new SplittableRandom();
+    private final ReentrantLock lock = new ReentrantLock();
+    private Node root;
+    private long sequence;
+    // Written under the lock, read without it
+    private volatile int count;
+
+    // Returns false if the guest is already waiting
+    boolean offer(String guestId, long sortKey) {
+        lock.lock();
+        try {
+            if (nodes.containsKey(guestId)) {
+                return false;
+            }
+            Node node = new Node(guestId, sortKey, sequence++, random.nextInt());
+            nodes.put(guestId, node);
+            root = insert(root, node);
+            count = root.size;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the sort key the guest was waiting with, or null if it was not waiting
+    Long remove(String guestId) {
+        lock.lock();
+        try {
+            Node node = nodes.remove(guestId);
+            if (node == null) {
+                return null;
+            }
+            root = erase(root, node);
+            count = size(root);
+            return node.sortKey;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    String poll() {
+        if (count == 0) {
+            return null;
+        }
+        lock.lock();
+        try {
+            if (root == null) {
+                return null;
+            }
+            Node head = root;
+            while (head.left != null) {
+                head = head.left;
+            }
+            nodes.remove(head.guestId);
+            root = erase(root, head);
+            count = size(root);
+            return head.guestId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 1 for the head of the queue, 0 if the guest is not waiting
+    int positionOf(String guestId) {
+        lock.lock();
+        try {
+            Node target = nodes.get(guestId);
+            if (target == null) {
+                return 0;
+            }
+            int ahead = 0;
+            Node node = root;
+            while (node != target) {
+                if (compare(target, node) < 0) {
+                    node = node.left;
+                } else {
+                    ahead += size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            return ahead + size(node.left) + 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    // Guests in queue order
+    List<String> snapshot() {
+        lock.lock();
+        try {
+            List<String> guests = new ArrayList<>(size(root));
+            Deque<Node> path = new ArrayDeque<>();
+            Node node = root;
+            while (node != null || !path.isEmpty()) {
+                while (node != null) {
+                    path.push(node);
+                    node = node.left;
+                }
+                node = path.pop();
+                guests.add(node.guestId);
+                node = node.right;
+            }
+            return guests;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Node insert(Node tree, Node node) {
+        if (tree == null) {
+            return node;
+        }
+        if (node.priority > tree.priority) {
+            Node[] parts = split(tree, node);
+            node.left = parts[0];
+            node.right = parts[1];
+            return update(node);
+        }
+        if (compare(node, tree) < 0) {
+            tree.left = insert(tree.left, node);
+        } else {
+            tree.right = insert(tree.right, node);
+        }
+        return update(tree);
+    }
+
+    private static Node erase(Node tree, Node node) {
+        if (tree == node) {
+            return merge(tree.left, tree.right);
+        }
+        if (compare(node, tree) < 0) {
+            tree.left = erase(tree.left, node);
+        } else {
+            tree.right = erase(tree.right, node);
+        }
+        return update(tree);
+    }
+
+    // Nodes ordered before the pivot, and the rest
+    private static Node[] split(Node tree, Node pivot) {
+        if (tree == null) {
+            return new Node[2];
+        }
+        if (compare(tree, pivot) < 0) {
+            Node[] parts = split(tree.right, pivot);
+            tree.right = parts[0];
+            parts[0] = update(tree);
+            return parts;
+        }
+        Node[] parts = split(tree.left, pivot);
+        tree.left = parts[1];
+        parts[1] = update(tree);
+        return parts;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    private static Node update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+        return node;
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static int compare(Node a, Node b) {
+        int bySortKey = Long.compare(a.sortKey, b.sortKey);
+        return bySortKey != 0 ? bySortKey : Long.compare(a.seq, b.seq);
+    }
+
+    private static final class Node {
+        final String guestId;
+        final long sortKey;
+        final long seq;
+        final int priority;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(String guestId, long sortKey, long seq, int priority) {
+            this.guestId = guestId;
+            this.sortKey = sortKey;
+            this.seq = seq;
+            this.priority = priority;
+        }
+    }
+}
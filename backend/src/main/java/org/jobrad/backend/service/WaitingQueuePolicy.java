@@ -0,0 +1,76 @@
+package org.jobrad.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.jobrad.backend.entity.UserRole;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Ordering and wait estimates for the waiting queue. A guest's sort key is its arrival time minus
+ * the head start of its priority class, so customers go ahead of guests, yet a guest who has waited
+ * longer than the head start is ahead of any customer arriving now and nobody starves. A guest who
+ * drops out and comes back within the grace period gets its old key back instead of the tail.
+ * Estimates divide the rolling mean handle time of recent conversations by the number of slots.
+ */
+@Component
+public class WaitingQueuePolicy {
+
+    private final long customerHeadStartMillis;
+    private final long defaultHandleTimeMillis;
+    private final long[] handleTimes;
+    private final Cache<String, Long> abandonedKeys;
+    private long recorded;
+    private long handleTimeSum;
+
+    public WaitingQueuePolicy(@Value("${chat.queue.customer-head-start:2m}") Duration customerHeadStart,
+                              @Value("${chat.queue.default-handle-time:5m}") Duration defaultHandleTime,
+                              @Value("${chat.queue.handle-time-window:200}") int handleTimeWindow,
+                              @Value("${chat.queue.rejoin-grace:2m}") Duration rejoinGrace) {
+        if (handleTimeWindow < 1) {
+            throw new IllegalArgumentException("chat.queue.handle-time-window must be at least 1");
+        }
+        this.customerHeadStartMillis = customerHeadStart.toMillis();
+        this.defaultHandleTimeMillis = defaultHandleTime.toMillis();
+        this.handleTimes = new long[handleTimeWindow];
+        this.abandonedKeys = Caffeine.newBuilder()
+                .expireAfterWrite(rejoinGrace)
+                .build();
+    }
+
+    public long sortKey(String guestId, UserRole role) {
+        Long previous = abandonedKeys.asMap().remove(guestId);
+        if (previous != null) {
+            return previous;
+        }
+        long now = System.currentTimeMillis();
+        return role == UserRole.CUSTOMER ? now - customerHeadStartMillis : now;
+    }
+
+    // Keeps the place of a guest who left the queue, for the grace period
+    public void abandoned(String guestId, long sortKey) {
+        abandonedKeys.put(guestId, sortKey);
+    }
+
+    public synchronized void recordHandleTime(Duration handleTime) {
+        long millis = Math.max(0, handleTime.toMillis());
+        int slot = (int) (recorded++ % handleTimes.length);
+        handleTimeSum += millis - handleTimes[slot];
+        handleTimes[slot] = millis;
+    }
+
+    public synchronized Duration meanHandleTime() {
+        int samples = (int) Math.min(recorded, handleTimes.length);
+        return Duration.ofMillis(samples == 0 ? defaultHandleTimeMillis : handleTimeSum / samples);
+    }
+
+    // A slot frees up every mean handle time divided by the number of slots, on average
+    public Duration estimateWait(int position, int slots) {
+        if (position <= 0) {
+            return Duration.ZERO;
+        }
+        return meanHandleTime().multipliedBy(position).dividedBy(Math.max(1, slots));
+    }
+}
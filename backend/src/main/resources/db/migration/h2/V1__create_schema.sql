@@ -0,0 +1,64 @@
+-- Embedded schema; mirrors db/migration/postgresql without the partitioning
+
+CREATE TABLE users (
+    id       UUID NOT NULL,
+    username VARCHAR(255),
+    password VARCHAR(255),
+    role     TINYINT CHECK (role BETWEEN 0 AND 3),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_users_username ON users (username);
+
+CREATE TABLE conversation (
+    id         UUID         NOT NULL,
+    guest_id   VARCHAR(255) NOT NULL,
+    agent_id   VARCHAR(255) NOT NULL,
+    started_at TIMESTAMP(6) NOT NULL,
+    ended_at   TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_conversation_guest ON conversation (guest_id);
+CREATE INDEX idx_conversation_agent ON conversation (agent_id);
+
+CREATE TABLE message (
+    id              BIGINT       NOT NULL,
+    timestamp       TIMESTAMP(6) NOT NULL,
+    sender          VARCHAR(255) NOT NULL,
+    recipient       VARCHAR(255) NOT NULL,
+    sender_type     ENUM ('ADMIN', 'CUSTOMER', 'GUEST', 'SUPPORT_AGENT') NOT NULL,
+    conversation_id UUID,
+    content         VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_message_sender_timestamp ON message (sender, timestamp, id);
+CREATE INDEX idx_message_recipient_timestamp ON message (recipient, timestamp, id);
+CREATE INDEX idx_message_conversation ON message (conversation_id, id);
+
+CREATE TABLE agent_slot (
+    agent_id VARCHAR(255) NOT NULL,
+    capacity INTEGER      NOT NULL,
+    active   INTEGER      NOT NULL,
+    seq      BIGINT       NOT NULL,
+    PRIMARY KEY (agent_id)
+);
+
+CREATE TABLE waiting_guest (
+    guest_id VARCHAR(255) NOT NULL,
+    sort_key BIGINT       NOT NULL,
+    PRIMARY KEY (guest_id)
+);
+
+CREATE INDEX idx_waiting_guest_sort ON waiting_guest (sort_key, guest_id);
+
+CREATE TABLE active_assignment (
+    guest_id        VARCHAR(255) NOT NULL,
+    agent_id        VARCHAR(255) NOT NULL,
+    conversation_id UUID         NOT NULL,
+    started_at      TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (guest_id)
+);
+
+CREATE INDEX idx_active_assignment_agent ON active_assignment (agent_id);
@@ -0,0 +1,3 @@
+-- Message content was limited to 255 characters, so longer messages were delivered but failed the
+-- batch insert. The length is now checked at ingress against chat.message.max-length.
+ALTER TABLE message ALTER COLUMN content SET DATA TYPE CHARACTER VARYING;
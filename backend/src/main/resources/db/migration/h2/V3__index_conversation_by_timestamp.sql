@@ -0,0 +1,4 @@
+-- Conversation history is paged by (timestamp, id) like user history, which is also the order of
+-- the archive segments, so a page read from the archive stops after the page size.
+DROP INDEX idx_message_conversation;
+CREATE INDEX idx_message_conversation ON message (conversation_id, timestamp, id);
@@ -0,0 +1,91 @@
+CREATE TABLE users (
+    id       UUID NOT NULL,
+    username VARCHAR(255),
+    password VARCHAR(255),
+    role     SMALLINT CHECK (role BETWEEN 0 AND 3),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_users_username ON users (username);
+
+CREATE TABLE conversation (
+    id         UUID         NOT NULL,
+    guest_id   VARCHAR(255) NOT NULL,
+    agent_id   VARCHAR(255) NOT NULL,
+    started_at TIMESTAMP(6) NOT NULL,
+    ended_at   TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_conversation_guest ON conversation (guest_id);
+CREATE INDEX idx_conversation_agent ON conversation (agent_id);
+
+-- Partitioned by month on the history keyset column. History pages are ordered by (timestamp, id), so
+-- the planner reads the partitions newest first and stops at the page limit instead of merging them
+-- all, and old months can be detached or dropped without a bulk delete. There is deliberately no
+-- default partition, which would rule out that ordered read; partitions are created months ahead
+-- instead. A primary key on a partitioned table must contain the partition key; ids are unique on
+-- their own.
+CREATE TABLE message (
+    id              BIGINT       NOT NULL,
+    timestamp       TIMESTAMP(6) NOT NULL,
+    sender          VARCHAR(255) NOT NULL,
+    recipient       VARCHAR(255) NOT NULL,
+    sender_type     VARCHAR(32)  NOT NULL CHECK (sender_type IN ('ADMIN', 'CUSTOMER', 'GUEST', 'SUPPORT_AGENT')),
+    conversation_id UUID,
+    content         VARCHAR(255) NOT NULL,
+    PRIMARY KEY (timestamp, id)
+) PARTITION BY RANGE (timestamp);
+
+CREATE INDEX idx_message_sender_timestamp ON message (sender, timestamp, id);
+CREATE INDEX idx_message_recipient_timestamp ON message (recipient, timestamp, id);
+CREATE INDEX idx_message_conversation ON message (conversation_id, id);
+
+-- Creates the partitions of the current month and the next months_ahead months that do not exist
+-- yet and returns how many it created. Called by MessagePartitionMaintainer.
+CREATE FUNCTION create_message_partitions(months_ahead INTEGER) RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE := date_trunc('month', localtimestamp)::DATE;
+    partition_name TEXT;
+    created     INTEGER := 0;
+BEGIN
+    FOR i IN 0..months_ahead LOOP
+        partition_name := 'message_' || to_char(month_start, 'YYYY_MM');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF message FOR VALUES FROM (%L) TO (%L)',
+                    partition_name, month_start, (month_start + INTERVAL '1 month')::DATE);
+            created := created + 1;
+        END IF;
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+    RETURN created;
+END
+$$ LANGUAGE plpgsql;
+
+SELECT create_message_partitions(3);
+
+CREATE TABLE agent_slot (
+    agent_id VARCHAR(255) NOT NULL,
+    capacity INTEGER      NOT NULL,
+    active   INTEGER      NOT NULL,
+    seq      BIGINT       NOT NULL,
+    PRIMARY KEY (agent_id)
+);
+
+CREATE TABLE waiting_guest (
+    guest_id VARCHAR(255) NOT NULL,
+    sort_key BIGINT       NOT NULL,
+    PRIMARY KEY (guest_id)
+);
+
+CREATE INDEX idx_waiting_guest_sort ON waiting_guest (sort_key, guest_id);
+
+CREATE TABLE active_assignment (
+    guest_id        VARCHAR(255) NOT NULL,
+    agent_id        VARCHAR(255) NOT NULL,
+    conversation_id UUID         NOT NULL,
+    started_at      TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (guest_id)
+);
+
+CREATE INDEX idx_active_assignment_agent ON active_assignment (agent_id);
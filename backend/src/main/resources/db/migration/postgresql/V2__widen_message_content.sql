@@ -0,0 +1,4 @@
+-- Message content was limited to 255 characters, so longer messages were delivered but failed the
+-- batch insert. The length is now checked at ingress against chat.message.max-length; text is
+-- binary compatible with varchar, so this rewrites no partition.
+ALTER TABLE message ALTER COLUMN content TYPE TEXT;
@@ -0,0 +1,97 @@
+package org.jobrad.backend.archive;
+
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MessageArchiveTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void pagesThroughAUsersHistoryAcrossBlocksAndSegments() throws Exception {
+        MessageArchive archive = new MessageArchive(directory);
+        assertNull(archive.newest());
+        List<Message> messages = new ArrayList<>();
+        // Enough entries for many blocks, interleaved with another pair of users
+        for (int i = 0; i < 1_500; i++) {
+            messages.add(message(i, i % 2 == 0 ? "Guest_1" : "agent1", i % 2 == 0 ? "agent1" : "Guest_1", null));
+            messages.add(message(10_000 + i, "Guest_2", "agent2", null));
+        }
+        archive.append(messages.subList(0, 1_600));
+        archive.append(messages.subList(1_600, messages.size()));
+        assertEquals(2, archive.getSegmentCount());
+        assertEquals(new MessageCursor(START.plusSeconds(10_000 + 1_499), 10_000 + 1_499), archive.newest());
+
+        List<Long> ids = new ArrayList<>();
+        MessageCursor cursor = MessageCursor.LATEST;
+        List<Message> page;
+        while (!(page = archive.findForUserBefore("Guest_1", cursor, 100)).isEmpty()) {
+            page.forEach(message -> ids.add(message.getId()));
+            Message oldest = page.get(page.size() - 1);
+            cursor = new MessageCursor(oldest.getTimestamp(), oldest.getId());
+        }
+        assertEquals(1_500, ids.size());
+        assertEquals(1_499L, ids.get(0));
+        assertEquals(0L, ids.get(ids.size() - 1));
+
+        List<Message> newer = archive.findForUserAfter("agent1", new MessageCursor(START.plusSeconds(1_000), 1_000), 3);
+        assertEquals(List.of(1_001L, 1_002L, 1_003L), newer.stream().map(Message::getId).toList());
+        assertEquals("Guest_1", newer.get(0).getRecipient());
+        assertEquals(List.of(), archive.findForUserBefore("Guest_3", MessageCursor.LATEST, 10));
+    }
+
+    @Test
+    void findsConversationsAndReopensSegmentsWrittenEarlier() throws Exception {
+        UUID conversationId = UUID.randomUUID();
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(message(i, "Guest_1", "agent1", conversationId));
+        }
+        messages.add(message(5, "Guest_1", "agent1", UUID.randomUUID()));
+        new MessageArchive(directory).append(messages);
+        // The same batch again, as after a crash before its rows were deleted
+        MessageArchive writer = new MessageArchive(directory);
+        writer.append(messages);
+
+        MessageArchive reader = new MessageArchive(directory);
+        reader.refresh();
+        assertEquals(1, reader.getSegmentCount());
+        assertEquals(List.of(4L, 3L), reader.findForConversationBefore(conversationId, MessageCursor.LATEST, 2)
+                .stream().map(Message::getId).toList());
+        assertEquals(List.of(2L, 1L), reader.findForConversationBefore(conversationId,
+                new MessageCursor(START.plusSeconds(3), 3), 2).stream().map(Message::getId).toList());
+        assertEquals(List.of(2L, 3L, 4L), reader.findForConversationAfter(conversationId,
+                new MessageCursor(START.plusSeconds(1), 1), 10).stream().map(Message::getId).toList());
+        Message first = reader.findForConversationAfter(conversationId, MessageCursor.EARLIEST, 1).get(0);
+        assertEquals("message 0", first.getContent());
+        assertEquals(UserRole.CUSTOMER, first.getSenderType());
+        assertEquals(START, first.getTimestamp());
+    }
+
+    private static Message message(long id, String sender, String recipient, UUID conversationId) {
+        return Message.builder()
+                .id(id)
+                .sender(sender)
+                .recipient(recipient)
+                .senderType(sender.startsWith("Guest_") ? UserRole.CUSTOMER : UserRole.SUPPORT_AGENT)
+                .content("message " + id)
+                .timestamp(START.plusSeconds(id))
+                .conversationId(conversationId)
+                .build();
+    }
+}
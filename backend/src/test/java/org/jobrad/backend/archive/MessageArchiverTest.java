@@ -0,0 +1,148 @@
+package org.jobrad.backend.archive;
+
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.dto.MessagePageResponse;
+import org.jobrad.backend.dto.MessageResponse;
+import org.jobrad.backend.entity.Conversation;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.repository.ConversationRepository;
+import org.jobrad.backend.repository.MessageRepository;
+import org.jobrad.backend.service.MessageIdGenerator;
+import org.jobrad.backend.service.MessageService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:archivedb",
+        "chat.archive.enabled=true",
+        "chat.archive.after=1d",
+        "chat.archive.batch-size=4"
+})
+class MessageArchiverTest {
+
+    @TempDir
+    private static Path archiveDirectory;
+
+    @Autowired
+    private MessageArchiver messageArchiver;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageIdGenerator messageIdGenerator;
+
+    @MockitoSpyBean
+    private MessageArchive messageArchive;
+
+    @DynamicPropertySource
+    static void archiveDirectory(DynamicPropertyRegistry registry) {
+        registry.add("chat.archive.dir", archiveDirectory::toString);
+    }
+
+    @Test
+    void movesOldMessagesToTheArchiveAndKeepsThemInHistory() {
+        LocalDateTime old = LocalDateTime.now().minusDays(3);
+        Conversation ended = conversation(old, old.plusMinutes(5));
+        Conversation open = conversation(old, null);
+        for (int i = 0; i < 6; i++) {
+            save("Guest_archive", "agent_archive", "old " + i, old.plusSeconds(i), ended.getId());
+        }
+        save("Guest_archive", "agent_archive", "still open", old.plusSeconds(10), open.getId());
+        save("agent_archive", "Guest_archive", "recent", LocalDateTime.now(), null);
+        awaitPersisted(8);
+
+        messageArchiver.archive();
+
+        assertEquals(2, messageRepository.count());
+        List<String> history = new ArrayList<>();
+        MessagePageResponse page = messageService.getMessagesForUser("Guest_archive", null, null, 3);
+        history.addAll(contents(page));
+        while (page.isHasMore()) {
+            page = messageService.getMessagesForUser("Guest_archive", null, MessageCursor.decode(page.getBeforeCursor()), 3);
+            history.addAll(0, contents(page));
+        }
+        assertEquals(List.of("old 0", "old 1", "old 2", "old 3", "old 4", "old 5", "still open", "recent"), history);
+
+        MessagePageResponse conversation = messageService.getMessagesForConversation(ended.getId(), null, null, 4);
+        assertEquals(List.of("old 2", "old 3", "old 4", "old 5"), contents(conversation));
+        assertTrue(conversation.isHasMore());
+        MessagePageResponse since = messageService.getMessagesForUser("agent_archive",
+                MessageCursor.decode(conversation.getBeforeCursor()), null, 10);
+        assertEquals(List.of("old 3", "old 4", "old 5", "still open", "recent"), contents(since));
+        assertFalse(since.isHasMore());
+
+        // Pages the table fills on its own leave the archive alone
+        save("Guest_archive", "agent_archive", "open 1", LocalDateTime.now(), open.getId());
+        save("agent_archive", "Guest_archive", "open 2", LocalDateTime.now(), open.getId());
+        awaitPersisted(4);
+        clearInvocations(messageArchive);
+        MessagePageResponse latest = messageService.getMessagesForConversation(open.getId(), null, null, 2);
+        assertEquals(List.of("open 1", "open 2"), contents(latest));
+        assertEquals(List.of("open 2"), contents(messageService.getMessagesForConversation(open.getId(),
+                MessageCursor.decode(latest.getBeforeCursor()), null, 2)));
+        verify(messageArchive, never()).findForConversationBefore(any(), any(), anyInt());
+        verify(messageArchive, never()).findForConversationAfter(any(), any(), anyInt());
+    }
+
+    private Conversation conversation(LocalDateTime startedAt, LocalDateTime endedAt) {
+        return conversationRepository.save(Conversation.builder()
+                .id(UUID.randomUUID())
+                .guestId("Guest_archive")
+                .agentId("agent_archive")
+                .startedAt(startedAt)
+                .endedAt(endedAt)
+                .build());
+    }
+
+    private void save(String sender, String recipient, String content, LocalDateTime timestamp, UUID conversationId) {
+        messageService.persistMessage(Message.builder()
+                .id(messageIdGenerator.nextId())
+                .sender(sender)
+                .recipient(recipient)
+                .senderType(sender.startsWith("Guest_") ? UserRole.CUSTOMER : UserRole.SUPPORT_AGENT)
+                .content(content)
+                .timestamp(timestamp)
+                .conversationId(conversationId)
+                .build());
+    }
+
+    private void awaitPersisted(long count) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (messageRepository.count() < count && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(count, messageRepository.count());
+    }
+
+    private static List<String> contents(MessagePageResponse page) {
+        return page.getMessages().stream().map(MessageResponse::getContent).toList();
+    }
+}
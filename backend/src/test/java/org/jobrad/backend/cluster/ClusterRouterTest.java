@@ -0,0 +1,197 @@
+package org.jobrad.backend.cluster;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jobrad.backend.config.ChatFrame;
+import org.jobrad.backend.config.ChatFrameCodec;
+import org.jobrad.backend.config.OutboundDelivery;
+import org.jobrad.backend.config.OutboundSession;
+import org.jobrad.backend.config.RawChatTransport;
+import org.jobrad.backend.config.StompChatTransport;
+import org.jobrad.backend.config.WebSocketSessionRegistry;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Two nodes in one JVM, sharing a presence registry and a loopback transport
+class ClusterRouterTest {
+
+    private final PresenceRegistry presence = new InMemoryPresenceRegistry();
+    private final LoopbackClusterTransport transport = new LoopbackClusterTransport();
+    private final ChatFrameCodec codec = new ChatFrameCodec();
+    private Node nodeA;
+    private Node nodeB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = new Node("node-a");
+        nodeB = new Node("node-b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.stop();
+        nodeB.stop();
+    }
+
+    @Test
+    void chatMessageReachesUserConnectedToAnotherNodeOnEveryTransport() throws Exception {
+        WebSocketSession agentSession = nodeB.connectRaw("agent1", null);
+        ChatFrame frame = chat("hi");
+
+        assertEquals(1, nodeA.router.sendChat("agent1", frame));
+
+        ArgumentCaptor<TextMessage> delivered = ArgumentCaptor.forClass(TextMessage.class);
+        verify(agentSession, timeout(2000)).sendMessage(delivered.capture());
+        assertEquals(frame.json().getPayload(), delivered.getValue().getPayload());
+
+        ArgumentCaptor<Message<?>> broker = ArgumentCaptor.forClass(Message.class);
+        verify(nodeB.brokerChannel).send(broker.capture());
+        assertEquals("/user/agent1/queue/messages", SimpMessageHeaderAccessor.wrap(broker.getValue()).getDestination());
+        assertArrayEquals(frame.json().asBytes(), (byte[]) broker.getValue().getPayload());
+        // Already routed to every node, so node B's broker channel does not forward it again
+        nodeA.router.userOnline("agent1");
+        nodeB.router.preSend(broker.getValue(), nodeB.brokerChannel);
+        verify(nodeA.brokerChannel, never()).send(any());
+    }
+
+    @Test
+    void cborSessionsGetBinaryFrames() throws Exception {
+        WebSocketSession guestSession = nodeA.connectRaw("Guest_1", ChatFrameCodec.CBOR_SUBPROTOCOL);
+
+        assertEquals(1, nodeA.router.sendChat("Guest_1", chat("hallo")));
+
+        ArgumentCaptor<BinaryMessage> delivered = ArgumentCaptor.forClass(BinaryMessage.class);
+        verify(guestSession, timeout(2000)).sendMessage(delivered.capture());
+        assertEquals("hallo", codec.decodeCbor(delivered.getValue().getPayload()).message().getContent());
+    }
+
+    @Test
+    void stompMessageIsForwardedToTheOtherNodesBrokerOnce() {
+        nodeB.router.userOnline("Guest_1");
+        byte[] payload = "{\"content\":\"hi\"}".getBytes(StandardCharsets.UTF_8);
+
+        nodeA.router.preSend(userMessage("/user/Guest_1/queue/messages", payload), nodeA.brokerChannel);
+
+        ArgumentCaptor<Message<?>> forwarded = ArgumentCaptor.forClass(Message.class);
+        verify(nodeB.brokerChannel).send(forwarded.capture());
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(forwarded.getValue());
+        assertEquals("/user/Guest_1/queue/messages", accessor.getDestination());
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, accessor.getContentType());
+        assertArrayEquals(payload, (byte[]) forwarded.getValue().getPayload());
+
+        // Node B's own broker channel sees the forwarded copy and must not send it back
+        nodeA.router.userOnline("Guest_1");
+        nodeB.router.preSend(forwarded.getValue(), nodeB.brokerChannel);
+        verify(nodeA.brokerChannel, never()).send(any());
+    }
+
+    @Test
+    void presenceFollowsTheLastLocalSession() {
+        nodeA.router.userOnline("Guest_1");
+        nodeA.router.userOnline("Guest_1");
+        nodeB.router.userOnline("Guest_1");
+        assertEquals(Set.of("node-a", "node-b"), presence.nodesOf("Guest_1"));
+
+        nodeA.router.userOffline("Guest_1");
+        assertEquals(Set.of("node-a", "node-b"), presence.nodesOf("Guest_1"));
+        nodeA.router.userOffline("Guest_1");
+        assertEquals(Set.of("node-b"), presence.nodesOf("Guest_1"));
+
+        nodeB.stop();
+        assertEquals(Set.of(), presence.nodesOf("Guest_1"));
+    }
+
+    @Test
+    void staleRegistrationIsDroppedByTheNodeThatNoLongerHoldsTheUser() {
+        presence.register("Guest_9", "node-b");
+
+        nodeA.router.sendChat("Guest_9", codec.frame("{}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(Set.of(), presence.nodesOf("Guest_9"));
+    }
+
+    private ChatFrame chat(String content) throws Exception {
+        return codec.frame(org.jobrad.backend.entity.Message.builder()
+                .id(1L)
+                .content(content)
+                .sender("Guest_1")
+                .recipient("agent1")
+                .senderType(UserRole.CUSTOMER)
+                .build());
+    }
+
+    private static Message<byte[]> userMessage(String destination, byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    private class Node {
+        private final WebSocketSessionRegistry sessionRegistry = new WebSocketSessionRegistry(Duration.ofMinutes(10));
+        private final OutboundDelivery outboundDelivery = new OutboundDelivery(Duration.ofSeconds(5), DataSize.ofKilobytes(512),
+                OutboundSession.OverflowPolicy.DROP, 1, false, new ChatMetrics(new SimpleMeterRegistry()));
+        private final MessageChannel brokerChannel = mock(MessageChannel.class);
+        private final ClusterRouter router;
+
+        Node(String nodeId) {
+            when(brokerChannel.send(any())).thenReturn(true);
+            when(brokerChannel.send(any(), anyLong())).thenReturn(true);
+            RawChatTransport raw = new RawChatTransport();
+            ReflectionTestUtils.setField(raw, "sessionRegistry", sessionRegistry);
+            ReflectionTestUtils.setField(raw, "outboundDelivery", outboundDelivery);
+            StompChatTransport stomp = new StompChatTransport();
+            ReflectionTestUtils.setField(stomp, "brokerChannel", brokerChannel);
+            router = new ClusterRouter(nodeId, presence, transport, List.of(raw, stomp), codec, brokerChannel);
+            router.join();
+        }
+
+        WebSocketSession connectRaw(String userId, String subprotocol) {
+            WebSocketSession session = mock(WebSocketSession.class);
+            when(session.getId()).thenReturn(userId + "-session");
+            when(session.isOpen()).thenReturn(true);
+            when(session.getAcceptedProtocol()).thenReturn(subprotocol);
+            when(session.getAttributes()).thenReturn(new HashMap<>());
+            outboundDelivery.open(session);
+            if (sessionRegistry.register(userId, session)) {
+                router.userOnline(userId);
+            }
+            return session;
+        }
+
+        void stop() {
+            router.leave();
+            outboundDelivery.destroy();
+        }
+    }
+}
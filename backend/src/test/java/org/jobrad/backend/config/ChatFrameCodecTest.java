@@ -0,0 +1,85 @@
+package org.jobrad.backend.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatFrameCodecTest {
+
+    private final ChatFrameCodec codec = new ChatFrameCodec();
+
+    @Test
+    void decodesSubscription() throws IOException {
+        ChatFrameCodec.Frame frame = codec.decode("{\"type\":\"subscribe\",\"userId\":\"Guest_1\"}");
+
+        assertTrue(frame.isSubscribe());
+        assertEquals("Guest_1", frame.userId());
+    }
+
+    @Test
+    void decodesChatMessageIgnoringServerAssignedAndUnknownFields() throws IOException {
+        ChatFrameCodec.Frame frame = codec.decode("{\"id\":7,\"content\":\"hi\",\"recipient\":\"agent1\","
+                + "\"sender\":\"Guest_1\",\"senderType\":\"GUEST\",\"timestamp\":\"2020-01-01T00:00:00\","
+                + "\"extra\":{\"nested\":[1,2]}}");
+
+        assertFalse(frame.isSubscribe());
+        Message message = frame.message();
+        assertEquals("hi", message.getContent());
+        assertEquals("agent1", message.getRecipient());
+        assertEquals("Guest_1", message.getSender());
+        assertEquals(UserRole.GUEST, message.getSenderType());
+        assertNull(message.getId());
+        assertNull(message.getTimestamp());
+    }
+
+    @Test
+    void rejectsNonObjectPayload() {
+        assertThrows(IOException.class, () -> codec.decode("[]"));
+    }
+
+    @Test
+    void encodesMessageWithIsoTimestamp() throws IOException {
+        UUID conversationId = UUID.randomUUID();
+        Message message = new Message(243_190_112_374_784_001L, "say \"hi\"", "agent1", "Guest_1", UserRole.GUEST,
+                LocalDateTime.of(2025, 3, 4, 5, 6, 7, 8_000_000), conversationId);
+
+        TextMessage frame = codec.encode(message);
+
+        JsonNode json = new ObjectMapper().readTree(frame.getPayload());
+        assertEquals("243190112374784001", json.get("id").textValue());
+        assertEquals("say \"hi\"", json.get("content").asText());
+        assertEquals("GUEST", json.get("senderType").asText());
+        assertEquals("2025-03-04T05:06:07.008", json.get("timestamp").asText());
+        assertEquals(conversationId.toString(), json.get("conversationId").asText());
+    }
+
+    @Test
+    void cborFramesCarryTheSameFieldsInFewerBytes() throws IOException {
+        Message message = new Message(42L, "Hallo, ich habe eine Frage", "agent1", "Guest_1", UserRole.CUSTOMER,
+                LocalDateTime.of(2025, 3, 4, 5, 6, 7), UUID.randomUUID());
+        TextMessage json = codec.encode(message);
+
+        BinaryMessage cbor = codec.toCbor(json);
+
+        assertTrue(cbor.getPayloadLength() < json.getPayloadLength());
+        Message decoded = codec.decodeCbor(cbor.getPayload()).message();
+        assertEquals("Hallo, ich habe eine Frage", decoded.getContent());
+        assertEquals("agent1", decoded.getRecipient());
+        assertEquals(UserRole.CUSTOMER, decoded.getSenderType());
+        assertTrue(codec.decodeCbor(codec.toCbor(new TextMessage("{\"type\":\"subscribe\"}")).getPayload()).isSubscribe());
+    }
+}
@@ -0,0 +1,167 @@
+package org.jobrad.backend.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.websocket.Session;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.standard.StandardWebSocketSession;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboundSessionTest {
+
+    // Holds drain tasks until the test runs them, standing in for a peer that is not reading
+    private final List<Runnable> pending = new ArrayList<>();
+    private final Executor manualExecutor = pending::add;
+    private final List<String> delivered = new ArrayList<>();
+
+    @Test
+    void queuesWithoutBlockingAndDeliversInOrder() throws Exception {
+        OutboundSession outbound = new OutboundSession(session(), manualExecutor, 5_000, 1_024, OutboundSession.OverflowPolicy.DROP);
+
+        assertTrue(outbound.send(new TextMessage("one")));
+        assertTrue(outbound.send(new TextMessage("two")));
+        assertEquals(List.of(), delivered);
+        assertEquals(1, pending.size());
+
+        pending.remove(0).run();
+        assertEquals(List.of("one", "two"), delivered);
+        assertEquals(0, outbound.getBufferedBytes());
+    }
+
+    @Test
+    void dropPolicyRejectsMessagesOverTheBufferLimit() throws Exception {
+        OutboundSession outbound = new OutboundSession(session(), manualExecutor, 5_000, 6, OutboundSession.OverflowPolicy.DROP);
+
+        assertTrue(outbound.send(new TextMessage("one")));
+        assertFalse(outbound.send(new TextMessage("four")));
+
+        pending.remove(0).run();
+        assertEquals(List.of("one"), delivered);
+        assertEquals(1, outbound.getDropped());
+    }
+
+    @Test
+    void coalescePolicyKeepsTheNewestMessages() throws Exception {
+        OutboundSession outbound = new OutboundSession(session(), manualExecutor, 5_000, 6, OutboundSession.OverflowPolicy.COALESCE);
+
+        outbound.send(new TextMessage("one"));
+        outbound.send(new TextMessage("two"));
+        outbound.send(new TextMessage("six"));
+
+        pending.remove(0).run();
+        assertEquals(List.of("two", "six"), delivered);
+    }
+
+    @Test
+    void disconnectPolicyClosesTheSlowSession() throws Exception {
+        WebSocketSession session = session();
+        OutboundSession outbound = new OutboundSession(session, manualExecutor, 5_000, 6, OutboundSession.OverflowPolicy.DISCONNECT);
+
+        outbound.send(new TextMessage("one"));
+        assertFalse(outbound.send(new TextMessage("four")));
+        assertFalse(outbound.send(new TextMessage("x")));
+
+        // Closed by the drain task, which sends nothing still queued
+        verify(session, never()).close(any());
+        pending.remove(0).run();
+        assertEquals(List.of(), delivered);
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    @Test
+    void disconnectDoesNotWaitForAStalledSend() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch peerReads = new CountDownLatch(1);
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            sending.countDown();
+            peerReads.await();
+            return null;
+        }).when(session).sendMessage(any());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            OutboundSession outbound = new OutboundSession(session, executor, 5_000, 6, OutboundSession.OverflowPolicy.DISCONNECT);
+            outbound.send(new TextMessage("one"));
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+            boolean accepted = assertTimeoutPreemptively(Duration.ofSeconds(1), () -> outbound.send(new TextMessage("four")));
+
+            assertFalse(accepted);
+            verify(session, never()).close(any());
+            peerReads.countDown();
+            verify(session, timeout(5_000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        } finally {
+            peerReads.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reportsDeliveriesAndDropsToItsListener() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OutboundSession outbound = new OutboundSession(session(), manualExecutor, 5_000, 6,
+                OutboundSession.OverflowPolicy.DROP, new ChatMetrics(registry).outboundListener());
+
+        outbound.send(new TextMessage("one"));
+        outbound.send(new TextMessage("four"));
+        pending.remove(0).run();
+
+        assertEquals(1, registry.get("chat.outbound.delivery").timer().count());
+        assertEquals(1, registry.get("chat.outbound.failures").tag("reason", "dropped").counter().count());
+        assertEquals(0, registry.get("chat.outbound.failures").tag("reason", "send_error").counter().count());
+    }
+
+    @Test
+    void deliveryBoundsEveryBlockingSendBySendTimeLimit() {
+        OutboundDelivery delivery = new OutboundDelivery(Duration.ofSeconds(3), DataSize.ofKilobytes(512),
+                OutboundSession.OverflowPolicy.DISCONNECT, 1, false, new ChatMetrics(new SimpleMeterRegistry()));
+        Map<String, Object> userProperties = new HashMap<>();
+        Session nativeSession = mock(Session.class);
+        when(nativeSession.getUserProperties()).thenReturn(userProperties);
+        StandardWebSocketSession session = mock(StandardWebSocketSession.class);
+        when(session.getAttributes()).thenReturn(new HashMap<>());
+        when(session.getNativeSession(Session.class)).thenReturn(nativeSession);
+
+        delivery.open(session);
+        delivery.destroy();
+
+        assertEquals(3_000L, userProperties.get(OutboundDelivery.BLOCKING_SEND_TIMEOUT));
+    }
+
+    private WebSocketSession session() throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> delivered.add(((TextMessage) invocation.getArgument(0)).getPayload()))
+                .when(session).sendMessage(any());
+        return session;
+    }
+}
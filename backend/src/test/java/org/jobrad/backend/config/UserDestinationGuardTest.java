@@ -0,0 +1,52 @@
+package org.jobrad.backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.security.Principal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserDestinationGuardTest {
+
+    private final UserDestinationGuard guard = new UserDestinationGuard();
+    private final Principal guest = UsernamePasswordAuthenticationToken.authenticated("Guest_1", null, List.of());
+
+    @Test
+    void allowsOwnQueuesAndApplicationDestinations() {
+        Message<?> subscribe = frame(SimpMessageType.SUBSCRIBE, "/user/Guest_1/queue/messages", guest);
+        assertSame(subscribe, guard.preSend(subscribe, null));
+        Message<?> send = frame(SimpMessageType.MESSAGE, "/app/chat", guest);
+        assertSame(send, guard.preSend(send, null));
+        Message<?> heartbeat = frame(SimpMessageType.HEARTBEAT, null, null);
+        assertSame(heartbeat, guard.preSend(heartbeat, null));
+    }
+
+    @Test
+    void rejectsOtherUsersQueuesAndDirectBrokerSends() {
+        assertThrows(MessageDeliveryException.class,
+                () -> guard.preSend(frame(SimpMessageType.SUBSCRIBE, "/user/agent1/queue/messages", guest), null));
+        // A prefix of another user's name is not the user's own
+        assertThrows(MessageDeliveryException.class,
+                () -> guard.preSend(frame(SimpMessageType.SUBSCRIBE, "/user/Guest_10/queue/messages", guest), null));
+        assertThrows(MessageDeliveryException.class,
+                () -> guard.preSend(frame(SimpMessageType.MESSAGE, "/user/agent1/queue/messages", guest), null));
+        assertThrows(MessageDeliveryException.class,
+                () -> guard.preSend(frame(SimpMessageType.SUBSCRIBE, "/user/Guest_1/queue/messages", null), null));
+    }
+
+    private static Message<?> frame(SimpMessageType type, String destination, Principal user) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setDestination(destination);
+        accessor.setUser(user);
+        accessor.setSessionId("s1");
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,36 @@
+package org.jobrad.backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadModeTest {
+
+    @Autowired
+    @Qualifier("clientInboundChannel")
+    private ExecutorSubscribableChannel clientInboundChannel;
+
+    @Autowired
+    @Qualifier("clientOutboundChannel")
+    private ExecutorSubscribableChannel clientOutboundChannel;
+
+    @Test
+    void stompChannelsRunOnVirtualThreads() throws Exception {
+        assertTrue(runsOnVirtualThread(clientInboundChannel));
+        assertTrue(runsOnVirtualThread(clientOutboundChannel));
+    }
+
+    private static boolean runsOnVirtualThread(ExecutorSubscribableChannel channel) throws Exception {
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        channel.getExecutor().execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+        return virtual.get(5, TimeUnit.SECONDS);
+    }
+}
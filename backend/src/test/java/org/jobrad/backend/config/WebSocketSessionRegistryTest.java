@@ -0,0 +1,56 @@
+package org.jobrad.backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WebSocketSessionRegistryTest {
+
+    private final WebSocketSessionRegistry registry = new WebSocketSessionRegistry(Duration.ofMinutes(10));
+
+    @Test
+    void tracksSeveralSessionsPerUserAndReportsTheLastOneClosing() {
+        WebSocketSession tab1 = session("s1", true);
+        WebSocketSession tab2 = session("s2", true);
+        registry.register("Guest_1", tab1);
+        registry.register("Guest_1", tab2);
+
+        assertEquals(Set.of(tab1, tab2), registry.getSessions("Guest_1"));
+        assertEquals("Guest_1", registry.getUserId(tab2));
+        assertEquals(2, registry.getSessionCount());
+        assertEquals(1, registry.getUserCount());
+
+        assertNull(registry.unregister(tab1));
+        assertEquals("Guest_1", registry.unregister(tab2));
+        assertEquals(Set.of(), registry.getSessions("Guest_1"));
+        assertEquals(0, registry.getSessionCount());
+        assertEquals(0, registry.getUserCount());
+    }
+
+    @Test
+    void sweepRemovesDeadSessions() {
+        WebSocketSession dead = session("s1", false);
+        WebSocketSession alive = session("s2", true);
+        registry.register("Guest_1", dead);
+        registry.register("agent1", alive);
+
+        assertEquals(List.of("Guest_1"), registry.sweep());
+        assertEquals(Set.of(alive), registry.getSessions("agent1"));
+        assertEquals(1, registry.getSessionCount());
+    }
+
+    private static WebSocketSession session(String id, boolean open) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(open);
+        return session;
+    }
+}
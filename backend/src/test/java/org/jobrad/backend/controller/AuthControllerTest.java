@@ -0,0 +1,85 @@
+package org.jobrad.backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jobrad.backend.entity.User;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.repository.UserRepository;
+import org.jobrad.backend.service.AgentAssignmentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:queuedb",
+        "chat.assignment.agent-slots=1"
+})
+@AutoConfigureMockMvc
+class AuthControllerTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private AgentAssignmentService agentAssignmentService;
+
+    @Test
+    void anonymousGuestsQueueBehindSignedInCustomers() throws Exception {
+        userRepository.save(User.builder()
+                .id(UUID.randomUUID())
+                .username("customer1")
+                .password(passwordEncoder.encode("password"))
+                .role(UserRole.CUSTOMER)
+                .build());
+
+        JsonNode served = json(mockMvc.perform(post("/api/auth/anonymous"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals("agent1", served.path("agentId").asText());
+        JsonNode waiting = json(mockMvc.perform(post("/api/auth/anonymous"))
+                .andExpect(status().isServiceUnavailable()).andReturn().getResponse().getContentAsString());
+        String waitingId = waiting.path("guestId").asText();
+
+        // The customer joins the queue after the anonymous guest
+        JsonNode customer = json(mockMvc.perform(post("/api/auth/login").with(httpBasic("customer1", "password")))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals("CUSTOMER", customer.path("role").asText());
+        mockMvc.perform(post("/api/assignment/queue/guest/customer1").header("Authorization", bearer(customer)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/assignment/guest/" + served.path("guestId").asText()).header("Authorization", bearer(served)))
+                .andExpect(status().isOk());
+        assertEquals("agent1", agentAssignmentService.getAssignedAgent("customer1"));
+        assertNull(agentAssignmentService.getAssignedAgent(waitingId));
+
+        mockMvc.perform(post("/api/assignment/guest/customer1").header("Authorization", bearer(customer)))
+                .andExpect(status().isOk());
+        assertEquals("agent1", agentAssignmentService.getAssignedAgent(waitingId));
+    }
+
+    private static JsonNode json(String body) throws Exception {
+        return OBJECT_MAPPER.readTree(body);
+    }
+
+    private static String bearer(JsonNode tokens) {
+        return "Bearer " + tokens.path("accessToken").asText();
+    }
+}
@@ -0,0 +1,50 @@
+package org.jobrad.backend.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketsTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void allowsABurstThenRefillsAtTheInterval() {
+        TokenBuckets buckets = new TokenBuckets(3, Duration.ofSeconds(1), 100, 4);
+        long now = 1_000 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, buckets.tryAcquire("10.0.0.1", now));
+        }
+        assertEquals(SECOND, buckets.tryAcquire("10.0.0.1", now));
+        assertEquals(SECOND / 2, buckets.tryAcquire("10.0.0.1", now + SECOND / 2));
+        // Other keys have their own buckets
+        assertEquals(0, buckets.tryAcquire("10.0.0.2", now));
+
+        assertEquals(0, buckets.tryAcquire("10.0.0.1", now + SECOND));
+        assertEquals(SECOND, buckets.tryAcquire("10.0.0.1", now + SECOND));
+        // Idle time refills no further than the capacity
+        long later = now + 60 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, buckets.tryAcquire("10.0.0.1", later));
+        }
+        assertTrue(buckets.tryAcquire("10.0.0.1", later) > 0);
+    }
+
+    @Test
+    void forgetsLeastRecentlyUsedKeysBeyondTheBound() {
+        TokenBuckets buckets = new TokenBuckets(1, Duration.ofMinutes(1), 8, 2);
+        long now = 1_000 * SECOND;
+        buckets.tryAcquire("busy", now);
+        for (int i = 0; i < 100; i++) {
+            buckets.tryAcquire("Guest_" + i, now);
+            // Kept in use, so never the eldest key of its stripe
+            assertTrue(buckets.tryAcquire("busy", now) > 0);
+        }
+        assertEquals(8, buckets.size());
+        // A forgotten key starts over with a full bucket
+        assertEquals(0, buckets.tryAcquire("Guest_0", now));
+    }
+}
@@ -0,0 +1,102 @@
+package org.jobrad.backend.search;
+
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.dto.MessageResponse;
+import org.jobrad.backend.dto.MessageSearchResponse;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.repository.MessageRepository;
+import org.jobrad.backend.service.MessageIdGenerator;
+import org.jobrad.backend.service.MessageService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:searchdb",
+        "chat.search.catch-up-interval=1h"
+})
+class MessageSearchIndexTest {
+
+    @Autowired
+    private MessageSearchIndex messageSearchIndex;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageIdGenerator messageIdGenerator;
+
+    @Test
+    void findsMatchesNewestFirstWithinUserAndTimeRange() {
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        for (int i = 0; i < 5; i++) {
+            messageService.persistMessage(message(messageIdGenerator.nextId(), "Guest_search", "agent_search",
+                    "my invoice number " + i + " is wrong", start.plusSeconds(i)));
+        }
+        messageService.persistMessage(message(messageIdGenerator.nextId(), "Guest_search", "agent_search",
+                "the delivery is late", start.plusSeconds(5)));
+        messageService.persistMessage(message(messageIdGenerator.nextId(), "Guest_other", "agent_search",
+                "where is my invoice", start.plusSeconds(6)));
+        messageSearchIndex.refresh();
+
+        MessageSearchResponse first = messageService.searchMessages("invoice", "Guest_search", null, null, null, 3);
+        assertEquals(List.of("my invoice number 4 is wrong", "my invoice number 3 is wrong", "my invoice number 2 is wrong"),
+                contents(first));
+        assertTrue(first.isHasMore());
+        MessageSearchResponse rest = messageService.searchMessages("invoice", "Guest_search", null, null,
+                MessageCursor.decode(first.getNextCursor()), 3);
+        assertEquals(List.of("my invoice number 1 is wrong", "my invoice number 0 is wrong"), contents(rest));
+        assertFalse(rest.isHasMore());
+
+        assertEquals(List.of("where is my invoice", "my invoice number 4 is wrong"),
+                contents(messageService.searchMessages("invoice", "agent_search", null, null, null, 2)));
+        assertEquals(List.of("my invoice number 2 is wrong", "my invoice number 1 is wrong"),
+                contents(messageService.searchMessages("invoice -delivery", null, start.plusSeconds(1), start.plusSeconds(3), null, 10)));
+        assertEquals(List.of("the delivery is late"),
+                contents(messageService.searchMessages("\"delivery is late\"", null, null, null, null, 10)));
+    }
+
+    @Test
+    void catchesUpWithMessagesPersistedByOtherNodes() {
+        LocalDateTime now = LocalDateTime.now();
+        messageRepository.save(message(new MessageIdGenerator(7).nextId(), "Guest_remote", "agent_remote",
+                "parcel arrived from another node", now));
+        // Written by this node without going through the index, so only a full pass picks it up
+        messageRepository.save(message(messageIdGenerator.nextId(), "Guest_remote", "agent_remote",
+                "parcel skipped by catch-up", now.plusSeconds(1)));
+
+        messageSearchIndex.catchUp(true);
+        assertEquals(List.of("parcel arrived from another node"),
+                contents(messageService.searchMessages("parcel", null, null, null, null, 10)));
+
+        messageSearchIndex.catchUp(false);
+        assertEquals(List.of("parcel skipped by catch-up", "parcel arrived from another node"),
+                contents(messageService.searchMessages("parcel", null, null, null, null, 10)));
+    }
+
+    private static Message message(long id, String sender, String recipient, String content, LocalDateTime timestamp) {
+        return Message.builder()
+                .id(id)
+                .sender(sender)
+                .recipient(recipient)
+                .senderType(sender.startsWith("Guest_") ? UserRole.CUSTOMER : UserRole.SUPPORT_AGENT)
+                .content(content)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private static List<String> contents(MessageSearchResponse response) {
+        return response.getMessages().stream().map(MessageResponse::getContent).toList();
+    }
+}
@@ -0,0 +1,119 @@
+package org.jobrad.backend.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:authdb")
+@AutoConfigureMockMvc
+class TokenAuthenticationTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void agentTradesPasswordForTokensAndRefreshesThem() throws Exception {
+        mockMvc.perform(post("/api/auth/login").with(httpBasic("agent1", "wrong"))).andExpect(status().isUnauthorized());
+        JsonNode login = json(mockMvc.perform(post("/api/auth/login").with(httpBasic("agent1", "password")))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals("SUPPORT_AGENT", login.path("role").asText());
+
+        mockMvc.perform(get("/api/messages").param("userId", "agent1")).andExpect(status().isUnauthorized());
+        // Basic credentials are only accepted by the login
+        mockMvc.perform(get("/api/messages").param("userId", "agent1").with(httpBasic("agent1", "password")))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/messages").param("userId", "agent1").header("Authorization", bearer(login, "accessToken")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/messages").param("userId", "agent1").header("Authorization", bearer(login, "refreshToken")))
+                .andExpect(status().isUnauthorized());
+
+        JsonNode refreshed = json(mockMvc.perform(post("/api/auth/refresh").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"" + login.path("refreshToken").asText() + "\"}"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        mockMvc.perform(get("/api/messages/search").param("q", "hello").header("Authorization", bearer(refreshed, "accessToken")))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/auth/refresh").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"" + login.path("accessToken").asText() + "\"}"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void guestGetsTokensWithItsRole() throws Exception {
+        String body = mockMvc.perform(post("/api/auth/anonymous")).andReturn().getResponse().getContentAsString();
+        JsonNode guest = json(body);
+        assertTrue(guest.path("guestId").asText().startsWith("Guest_"));
+
+        mockMvc.perform(get("/api/messages").param("userId", guest.path("guestId").asText())
+                        .header("Authorization", bearer(guest, "accessToken")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/messages/search").param("q", "hello").header("Authorization", bearer(guest, "accessToken")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/auth/refresh").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"" + guest.path("refreshToken").asText() + "\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void guestOnlyReachesItsOwnHistoryAndAssignment() throws Exception {
+        JsonNode guest = json(mockMvc.perform(post("/api/auth/anonymous")).andReturn().getResponse().getContentAsString());
+        String guestId = guest.path("guestId").asText();
+        String token = bearer(guest, "accessToken");
+
+        mockMvc.perform(get("/api/messages").param("userId", "agent1").header("Authorization", token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/messages/conversation/" + UUID.randomUUID()).header("Authorization", token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/assignment/agent1").header("Authorization", token)).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/assignment/" + guestId).header("Authorization", token)).andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/assignment/free/agent1").header("Authorization", token)).andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/assignment/guest/Guest_someoneelse").header("Authorization", token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/assignment/queue/guest/Guest_someoneelse").header("Authorization", token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/assignment/guest/" + guestId).header("Authorization", token)).andExpect(status().isOk());
+
+        JsonNode agent = json(mockMvc.perform(post("/api/auth/login").with(httpBasic("agent1", "password")))
+                .andReturn().getResponse().getContentAsString());
+        mockMvc.perform(get("/api/messages").param("userId", guestId).header("Authorization", bearer(agent, "accessToken")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/assignment/agent1").header("Authorization", bearer(agent, "accessToken")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void webSocketHandshakeNeedsAnAccessToken() throws Exception {
+        JsonNode guest = json(mockMvc.perform(post("/api/auth/anonymous")).andReturn().getResponse().getContentAsString());
+
+        mockMvc.perform(get("/chat/info")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/chat/info").param("access_token", "forged")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/chat/info").param("access_token", guest.path("accessToken").asText())).andExpect(status().isOk());
+        // The query parameter is only read for the handshake
+        mockMvc.perform(get("/api/messages").param("userId", guest.path("guestId").asText())
+                        .param("access_token", guest.path("accessToken").asText()))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private static JsonNode json(String body) throws Exception {
+        return OBJECT_MAPPER.readTree(body);
+    }
+
+    private static String bearer(JsonNode tokens, String field) {
+        return "Bearer " + tokens.path(field).asText();
+    }
+}
@@ -0,0 +1,56 @@
+package org.jobrad.backend.security;
+
+import org.jobrad.backend.dto.TokenResponse;
+import org.jobrad.backend.entity.UserRole;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final TokenService tokenService = new TokenService(SECRET, Duration.ofMinutes(15), Duration.ofDays(7));
+
+    @Test
+    void verifiesItsOwnTokensByType() {
+        TokenResponse tokens = tokenService.issue("agent1", UserRole.SUPPORT_AGENT, false);
+
+        TokenService.AuthToken access = tokenService.verify(tokens.getAccessToken(), TokenService.ACCESS);
+        assertEquals("agent1", access.username());
+        assertEquals(UserRole.SUPPORT_AGENT, access.role());
+        assertFalse(access.guest());
+        assertTrue(tokenService.verify(tokens.getRefreshToken(), TokenService.REFRESH).expiresAt() > access.expiresAt());
+        // Neither token stands in for the other
+        assertNull(tokenService.verify(tokens.getAccessToken(), TokenService.REFRESH));
+        assertNull(tokenService.verify(tokens.getRefreshToken(), TokenService.ACCESS));
+        assertTrue(tokenService.verify(tokenService.issue("Guest_1", UserRole.CUSTOMER, true).getAccessToken(),
+                TokenService.ACCESS).guest());
+    }
+
+    @Test
+    void rejectsTamperedForeignAndExpiredTokens() {
+        String token = tokenService.issue("Guest_1", UserRole.CUSTOMER, true).getAccessToken();
+        String[] parts = token.split("\\.");
+        String forged = tokenService.issue("agent1", UserRole.ADMIN, false).getAccessToken().split("\\.")[1];
+
+        assertNull(tokenService.verify(parts[0] + "." + forged + "." + parts[2], TokenService.ACCESS));
+        assertNull(tokenService.verify(token.substring(0, token.length() - 2), TokenService.ACCESS));
+        assertNull(tokenService.verify("not a token", TokenService.ACCESS));
+        assertNull(new TokenService(SECRET.toUpperCase(), Duration.ofMinutes(15), Duration.ofDays(7))
+                .verify(token, TokenService.ACCESS));
+        TokenService expiring = new TokenService(SECRET, Duration.ZERO, Duration.ZERO);
+        assertNull(expiring.verify(expiring.issue("Guest_1", UserRole.CUSTOMER, true).getAccessToken(), TokenService.ACCESS));
+    }
+
+    @Test
+    void rejectsShortSecrets() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenService("short", Duration.ofMinutes(15), Duration.ofDays(7)));
+    }
+}
@@ -0,0 +1,263 @@
+package org.jobrad.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jobrad.backend.dto.AssignmentMessageResponse;
+import org.jobrad.backend.entity.Conversation;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.jobrad.backend.repository.ConversationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class AgentAssignmentServiceImplTest {
+
+    private static final int AGENTS = 8;
+    private static final int SLOTS = 3;
+    private static final int THREADS = 16;
+
+    private AgentAssignmentServiceImpl service;
+    private InMemoryAssignmentStore store;
+    private final ConversationRepository conversationRepository = mock(ConversationRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryAssignmentStore();
+        service = new AgentAssignmentServiceImpl(SLOTS, store,
+                new WaitingQueuePolicy(Duration.ofMinutes(2), Duration.ofMinutes(5), 200, Duration.ofMinutes(2)));
+        ReflectionTestUtils.setField(service, "messagingTemplate", mock(SimpMessagingTemplate.class));
+        ReflectionTestUtils.setField(service, "conversationRepository", conversationRepository);
+        ReflectionTestUtils.setField(service, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(service, "chatMetrics", new ChatMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void startsAndEndsAConversationPerAssignment() {
+        service.assignAgent("Guest_1", UserRole.GUEST);
+        Conversation conversation = service.findActiveConversation("Guest_1", "agent1");
+        assertNotNull(conversation);
+        assertSame(conversation, service.findActiveConversation("agent1", "Guest_1"));
+        assertNull(service.findActiveConversation("Guest_1", "agent2"));
+        assertNotNull(conversation.getStartedAt());
+        assertNull(conversation.getEndedAt());
+
+        service.freeGuest("Guest_1");
+
+        assertNull(service.findActiveConversation("Guest_1", "agent1"));
+        assertNotNull(conversation.getEndedAt());
+        verify(conversationRepository, times(2)).save(conversation);
+    }
+
+    @Test
+    void fillsSlotsInArrivalOrderAndHandsFreedSlotToNextGuest() {
+        for (int i = 1; i <= SLOTS; i++) {
+            assertEquals("agent1", service.assignAgent("Guest_" + i, UserRole.GUEST));
+        }
+        assertNull(service.assignAgent("Guest_4", UserRole.GUEST));
+        assertNull(service.assignAgent("Guest_5", UserRole.GUEST));
+
+        service.freeGuest("Guest_1");
+
+        assertEquals("agent1", service.getAssignedAgent("Guest_4"));
+        assertNull(service.getAssignedAgent("Guest_5"));
+        assertEquals(Set.of("Guest_2", "Guest_3", "Guest_4"), service.getAssignedGuests("agent1"));
+    }
+
+    @Test
+    void customersGoFirstAndRejoiningGuestKeepsItsPlace() throws InterruptedException {
+        for (int i = 1; i <= SLOTS; i++) {
+            service.assignAgent("Guest_" + i, UserRole.GUEST);
+        }
+        service.queueGuest("Guest_a", UserRole.GUEST);
+        // Arrival times are in milliseconds
+        Thread.sleep(2);
+        service.queueGuest("Guest_b", UserRole.GUEST);
+        service.freeGuest("Guest_a");
+        service.queueGuest("Guest_c", UserRole.CUSTOMER);
+        service.queueGuest("Guest_a", UserRole.GUEST);
+
+        service.freeGuest("Guest_1");
+        service.freeGuest("Guest_2");
+
+        assertEquals("agent1", service.getAssignedAgent("Guest_c"));
+        assertEquals("agent1", service.getAssignedAgent("Guest_a"));
+        assertNull(service.getAssignedAgent("Guest_b"));
+    }
+
+    @Test
+    void waitingGuestIsToldItsPositionAndEstimatedWait() {
+        SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        ReflectionTestUtils.setField(service, "messagingTemplate", messagingTemplate);
+        for (int i = 1; i <= SLOTS + 1; i++) {
+            service.assignAgent("Guest_" + i, UserRole.GUEST);
+        }
+        service.queueGuest("Guest_5", UserRole.GUEST);
+
+        ArgumentCaptor<AssignmentMessageResponse> response = ArgumentCaptor.forClass(AssignmentMessageResponse.class);
+        verify(messagingTemplate).convertAndSendToUser(eq("Guest_5"), eq("/queue/assignment"), response.capture());
+        assertEquals(2, response.getValue().getQueuePosition());
+        // No conversation has ended yet, so the default handle time of 5 minutes is shared by 3 slots
+        assertEquals(200, response.getValue().getEstimatedWaitSeconds());
+        assertNull(response.getValue().getAgentId());
+    }
+
+    @Test
+    void routesToLeastLoadedAgent() {
+        service.assignAgent("Guest_1", UserRole.GUEST);
+        service.assignAgent("Guest_2", UserRole.GUEST);
+        assertEquals(Set.of("Guest_1", "Guest_2"), service.getAssignedGuests("agent1"));
+
+        // agent2 registers with every slot free, so it takes the next guests until loads even out
+        assertEquals(Set.of(), service.getAssignedGuests("agent2"));
+        assertEquals("agent2", service.assignAgent("Guest_3", UserRole.GUEST));
+        assertEquals("agent2", service.assignAgent("Guest_4", UserRole.GUEST));
+        assertEquals("agent1", service.assignAgent("Guest_5", UserRole.GUEST));
+
+        // A freed agent leaves the rotation; its guests wait, as agent1 is full, until it asks for work again
+        service.freeAgent("agent2");
+        assertNull(service.getAssignedAgent("Guest_3"));
+        assertNull(service.getAssignedAgent("Guest_4"));
+        assertEquals(Set.of("Guest_1", "Guest_2", "Guest_5"), service.getAssignedGuests("agent1"));
+        assertEquals(Set.of("Guest_3", "Guest_4"), service.getAssignedGuests("agent2"));
+    }
+
+    @Test
+    void guestLeavingDuringItsClaimIsNotBound() {
+        ReflectionTestUtils.setField(store, "guestConversations", new ConcurrentHashMap<String, Conversation>() {
+            @Override
+            public Conversation putIfAbsent(String guestId, Conversation conversation) {
+                if (guestId.equals("Guest_1")) {
+                    // Taken out of the queue by the claim, not bound yet
+                    service.freeGuest(guestId);
+                }
+                return super.putIfAbsent(guestId, conversation);
+            }
+        });
+
+        assertNull(service.assignAgent("Guest_1", UserRole.GUEST));
+        assertNull(service.getAssignedAgent("Guest_1"));
+        assertEquals(0, store.activeCount());
+        // No slot was leaked to the departed guest
+        for (int i = 2; i <= SLOTS + 1; i++) {
+            assertEquals("agent1", service.assignAgent("Guest_" + i, UserRole.GUEST));
+        }
+        assertNull(service.assignAgent("Guest_" + (SLOTS + 2), UserRole.GUEST));
+    }
+
+    @Test
+    void concurrentGuestsNeverExceedAgentCapacity() throws Exception {
+        registerAgents();
+        int guests = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = IntStream.range(0, guests)
+                .mapToObj(i -> pool.submit(() -> {
+                    start.await();
+                    return service.assignAgent("Guest_" + i, UserRole.GUEST);
+                }))
+                .<Future<?>>map(f -> f)
+                .toList();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        Map<String, Integer> loads = new HashMap<>();
+        for (int i = 0; i < guests; i++) {
+            String guestId = "Guest_" + i;
+            String agentId = service.getAssignedAgent(guestId);
+            if (agentId != null) {
+                loads.merge(agentId, 1, Integer::sum);
+                assertTrue(service.getAssignedGuests(agentId).contains(guestId));
+            }
+        }
+        assertEquals(AGENTS, loads.size());
+        loads.forEach((agentId, load) -> assertEquals(SLOTS, load, "wrong load for " + agentId));
+    }
+
+    @Test
+    void assignFreeChurnNeverOverbooksAnAgent() throws Exception {
+        registerAgents();
+        int rounds = 500;
+        Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+        AtomicInteger violations = new AtomicInteger();
+        AtomicInteger served = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> futures = IntStream.range(0, THREADS)
+                .mapToObj(t -> pool.submit(() -> {
+                    start.await();
+                    for (int r = 0; r < rounds; r++) {
+                        String guestId = "Guest_" + t + "_" + r;
+                        String agentId = service.assignAgent(guestId, UserRole.GUEST);
+                        while (agentId == null) {
+                            Thread.onSpinWait();
+                            agentId = service.getAssignedAgent(guestId);
+                        }
+                        AtomicInteger load = loads.computeIfAbsent(agentId, id -> new AtomicInteger());
+                        if (load.incrementAndGet() > SLOTS) {
+                            violations.incrementAndGet();
+                        }
+                        served.incrementAndGet();
+                        if (r % 4 == 0) {
+                            // Joins while every slot may be taken and leaves at once, racing the drains of
+                            // other threads that may already have taken it out of the queue
+                            String leaverId = guestId + "_left";
+                            service.assignAgent(leaverId, UserRole.GUEST);
+                            service.freeGuest(leaverId);
+                        }
+                        load.decrementAndGet();
+                        service.freeGuest(guestId);
+                    }
+                    return null;
+                }))
+                .<Future<?>>map(f -> f)
+                .toList();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(0, violations.get());
+        assertEquals(THREADS * rounds, served.get());
+        for (int a = 1; a <= AGENTS; a++) {
+            assertEquals(Set.of(), service.getAssignedGuests("agent" + a), "agent left busy: agent" + a);
+        }
+    }
+
+    private void registerAgents() {
+        for (int a = 1; a <= AGENTS; a++) {
+            assertEquals(Set.of(), service.getAssignedGuests("agent" + a));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.jobrad.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jobrad.backend.cluster.ClusterRouter;
+import org.jobrad.backend.config.ChatFrameCodec;
+import org.jobrad.backend.entity.Conversation;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatPipelineTest {
+
+    private final ConversationBindings conversationBindings = mock(ConversationBindings.class);
+    private final ClusterRouter clusterRouter = mock(ClusterRouter.class);
+    private final MessageService messageService = mock(MessageService.class);
+    private final ConversationReaper conversationReaper = mock(ConversationReaper.class);
+    private final ChatPipeline pipeline = new ChatPipeline();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(pipeline, "messageIdGenerator", new MessageIdGenerator(0));
+        ReflectionTestUtils.setField(pipeline, "conversationBindings", conversationBindings);
+        ReflectionTestUtils.setField(pipeline, "conversationReaper", conversationReaper);
+        ReflectionTestUtils.setField(pipeline, "frameCodec", new ChatFrameCodec());
+        ReflectionTestUtils.setField(pipeline, "clusterRouter", clusterRouter);
+        ReflectionTestUtils.setField(pipeline, "messageService", messageService);
+        ReflectionTestUtils.setField(pipeline, "chatMetrics", new ChatMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(pipeline, "maxContentLength", 10);
+    }
+
+    @Test
+    void deliversAndStoresMessageWithinItsConversation() throws IOException {
+        Conversation conversation = Conversation.builder()
+                .id(UUID.randomUUID()).guestId("Guest_1").agentId("agent1").startedAt(LocalDateTime.now()).build();
+        when(conversationBindings.find("Guest_1", "agent1")).thenReturn(conversation);
+        Message message = message("Guest_1", "agent1");
+
+        assertTrue(pipeline.send(message, ChatMetrics.RAW, System.nanoTime()));
+
+        assertNotNull(message.getId());
+        assertEquals(conversation.getId(), message.getConversationId());
+        verify(clusterRouter).sendChat(eq("agent1"), any());
+        verify(clusterRouter).sendChat(eq("Guest_1"), any());
+        verify(messageService).persistMessage(message);
+    }
+
+    @Test
+    void dropsMessageOutsideAnActiveConversation() throws IOException {
+        Message message = message("Guest_1", "agent2");
+
+        assertFalse(pipeline.send(message, ChatMetrics.STOMP, System.nanoTime()));
+
+        verify(clusterRouter, never()).sendChat(any(), any());
+        verify(messageService, never()).persistMessage(any());
+        verify(conversationReaper, never()).recordMessage(any(), any());
+    }
+
+    @Test
+    void dropsMessageLongerThanTheLimit() throws IOException {
+        when(conversationBindings.find("Guest_1", "agent1")).thenReturn(Conversation.builder()
+                .id(UUID.randomUUID()).guestId("Guest_1").agentId("agent1").startedAt(LocalDateTime.now()).build());
+        Message message = message("Guest_1", "agent1");
+        message.setContent("x".repeat(11));
+
+        assertFalse(pipeline.send(message, ChatMetrics.RAW, System.nanoTime()));
+
+        verify(clusterRouter, never()).sendChat(any(), any());
+        verify(messageService, never()).persistMessage(any());
+    }
+
+    private static Message message(String sender, String recipient) {
+        return Message.builder()
+                .content("hello")
+                .sender(sender)
+                .recipient(recipient)
+                .senderType(sender.startsWith("Guest_") ? UserRole.CUSTOMER : UserRole.SUPPORT_AGENT)
+                .build();
+    }
+}
@@ -0,0 +1,70 @@
+package org.jobrad.backend.service;
+
+import org.jobrad.backend.entity.Conversation;
+import org.jobrad.backend.event.ConversationEndedEvent;
+import org.jobrad.backend.event.ConversationStartedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationBindingsTest {
+
+    private final AgentAssignmentService agentAssignmentService = mock(AgentAssignmentService.class);
+    private ConversationBindings bindings;
+
+    @BeforeEach
+    void setUp() {
+        bindings = new ConversationBindings(Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(bindings, "agentAssignmentService", agentAssignmentService);
+    }
+
+    @Test
+    void answersFromAssignmentEventsWithoutTheStore() {
+        Conversation conversation = conversation("Guest_1", "agent1");
+        bindings.onConversationStarted(new ConversationStartedEvent(conversation));
+
+        assertSame(conversation, bindings.find("Guest_1", "agent1"));
+        assertSame(conversation, bindings.find("agent1", "Guest_1"));
+        assertNull(bindings.find("Guest_1", "agent2"));
+        assertNull(bindings.find("agent2", "Guest_1"));
+        verify(agentAssignmentService, never()).findActiveConversation("Guest_1", "agent1");
+
+        bindings.onConversationEnded(new ConversationEndedEvent(conversation));
+        assertNull(bindings.find("Guest_1", "agent1"));
+    }
+
+    @Test
+    void remembersConversationsAssignedElsewhere() {
+        Conversation conversation = conversation("Guest_2", "agent1");
+        when(agentAssignmentService.findActiveConversation("Guest_2", "agent1")).thenReturn(conversation);
+
+        assertSame(conversation, bindings.find("agent1", "Guest_2"));
+        assertSame(conversation, bindings.find("Guest_2", "agent1"));
+        verify(agentAssignmentService, times(1)).findActiveConversation("Guest_2", "agent1");
+
+        // An older conversation ending leaves the guest's current one in place
+        bindings.onConversationEnded(new ConversationEndedEvent(conversation("Guest_2", "agent1")));
+        assertSame(conversation, bindings.find("Guest_2", "agent1"));
+    }
+
+    private static Conversation conversation(String guestId, String agentId) {
+        return Conversation.builder()
+                .id(UUID.randomUUID())
+                .guestId(guestId)
+                .agentId(agentId)
+                .startedAt(LocalDateTime.now())
+                .build();
+    }
+}
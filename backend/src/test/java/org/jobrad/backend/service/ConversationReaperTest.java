@@ -0,0 +1,153 @@
+package org.jobrad.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jobrad.backend.cluster.ClusterRouter;
+import org.jobrad.backend.cluster.InMemoryPresenceRegistry;
+import org.jobrad.backend.cluster.PresenceRegistry;
+import org.jobrad.backend.entity.Conversation;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.event.ConversationEndedEvent;
+import org.jobrad.backend.event.ConversationStartedEvent;
+import org.jobrad.backend.metrics.ChatMetrics;
+import org.jobrad.backend.repository.ConversationRepository;
+import org.jobrad.backend.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ConversationReaperTest {
+
+    private static final long IDLE_MS = 300;
+    private static final long LIVENESS_MS = 100;
+
+    private final AgentAssignmentService assignmentService = mock(AgentAssignmentService.class);
+    private final PresenceRegistry presence = new InMemoryPresenceRegistry();
+    private ConversationReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        reaper = new ConversationReaper(Duration.ofMillis(IDLE_MS), Duration.ofMillis(LIVENESS_MS));
+        ReflectionTestUtils.setField(reaper, "agentAssignmentService", assignmentService);
+        ReflectionTestUtils.setField(reaper, "messagingTemplate", mock(SimpMessagingTemplate.class));
+        ReflectionTestUtils.setField(reaper, "clusterRouter", mock(ClusterRouter.class));
+        ReflectionTestUtils.setField(reaper, "presenceRegistry", presence);
+        ReflectionTestUtils.setField(reaper, "messageRepository", mock(MessageRepository.class));
+        ReflectionTestUtils.setField(reaper, "chatMetrics", new ChatMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void endsConversationOfGuestWhoWentSilent() throws InterruptedException {
+        start("Guest_1", "agent1");
+        presence.register("agent1", "node-0");
+
+        reaper.reap();
+        verify(assignmentService, never()).freeGuest(any());
+
+        Thread.sleep(LIVENESS_MS + 50);
+        reaper.reap();
+
+        verify(assignmentService).freeGuest("Guest_1");
+        verify(assignmentService, never()).freeAgent(any());
+    }
+
+    @Test
+    void heartbeatsAndPresenceKeepParticipantsAliveUntilTheConversationIdles() throws InterruptedException {
+        Conversation conversation = start("Guest_1", "agent1");
+        presence.register("agent1", "node-0");
+        long idleAt = System.currentTimeMillis() + IDLE_MS;
+
+        while (System.currentTimeMillis() < idleAt - 60) {
+            reaper.recordPresence("Guest_1");
+            reaper.reap();
+            Thread.sleep(20);
+        }
+        verify(assignmentService, never()).freeGuest(any());
+
+        reaper.recordMessage(conversation, "agent1");
+        Thread.sleep(100);
+        reaper.recordPresence("Guest_1");
+        reaper.reap();
+        verify(assignmentService, never()).freeGuest(any());
+
+        presence.register("Guest_1", "node-1");
+        Thread.sleep(IDLE_MS + 50);
+        reaper.reap();
+        verify(assignmentService).freeGuest("Guest_1");
+    }
+
+    @Test
+    void freesAgentThatWentSilent() throws InterruptedException {
+        start("Guest_1", "agent1");
+        presence.register("Guest_1", "node-0");
+
+        Thread.sleep(LIVENESS_MS + 50);
+        reaper.reap();
+
+        verify(assignmentService).freeAgent("agent1");
+        verify(assignmentService, never()).freeGuest(any());
+    }
+
+    @Test
+    void guestsOfASilentAgentAreNotHandedBackToIt() throws InterruptedException {
+        AgentAssignmentServiceImpl service = new AgentAssignmentServiceImpl(1, new InMemoryAssignmentStore(),
+                new WaitingQueuePolicy(Duration.ofMinutes(2), Duration.ofMinutes(5), 200, Duration.ofMinutes(2)));
+        ReflectionTestUtils.setField(service, "messagingTemplate", mock(SimpMessagingTemplate.class));
+        ReflectionTestUtils.setField(service, "conversationRepository", mock(ConversationRepository.class));
+        ReflectionTestUtils.setField(service, "chatMetrics", new ChatMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "eventPublisher", (ApplicationEventPublisher) event -> {
+            if (event instanceof ConversationStartedEvent started) {
+                reaper.onConversationStarted(started);
+            } else if (event instanceof ConversationEndedEvent ended) {
+                reaper.onConversationEnded(ended);
+            }
+        });
+        ReflectionTestUtils.setField(reaper, "agentAssignmentService", service);
+        assertEquals("agent1", service.assignAgent("Guest_1", UserRole.CUSTOMER));
+        presence.register("Guest_1", "node-0");
+
+        Thread.sleep(LIVENESS_MS + 50);
+        reaper.reap();
+
+        assertNull(service.getAssignedAgent("Guest_1"));
+        assertEquals(0, reaper.getTrackedCount());
+        assertEquals(Set.of("Guest_1"), service.getAssignedGuests("agent2"));
+    }
+
+    @Test
+    void endedConversationIsNoLongerTracked() throws InterruptedException {
+        Conversation conversation = start("Guest_1", "agent1");
+        reaper.onConversationEnded(new ConversationEndedEvent(conversation));
+        assertEquals(0, reaper.getTrackedCount());
+
+        Thread.sleep(LIVENESS_MS + 50);
+        reaper.reap();
+
+        verify(assignmentService, never()).freeGuest(any());
+        verify(assignmentService, never()).freeAgent(any());
+    }
+
+    private Conversation start(String guestId, String agentId) {
+        Conversation conversation = Conversation.builder()
+                .id(UUID.randomUUID())
+                .guestId(guestId)
+                .agentId(agentId)
+                .startedAt(LocalDateTime.now())
+                .build();
+        reaper.onConversationStarted(new ConversationStartedEvent(conversation));
+        return conversation;
+    }
+}
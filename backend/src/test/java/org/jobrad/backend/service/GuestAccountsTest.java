@@ -0,0 +1,53 @@
+package org.jobrad.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:guestdb",
+        "chat.guests.flush-interval=1h",
+        "chat.guests.purge-interval=1h"
+})
+class GuestAccountsTest {
+
+    @Autowired
+    private GuestAccounts guestAccounts;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void storesGuestsOnlyOnceTheyWrite() {
+        String guestId = userService.createAnonymousCustomer();
+        assertEquals(0, rows(guestId));
+
+        guestAccounts.recordActive(guestId);
+        guestAccounts.recordActive(guestId);
+        assertEquals(1, guestAccounts.pending());
+        guestAccounts.flush();
+        assertEquals(1, rows(guestId));
+
+        // Remembered as stored, so further messages add nothing
+        guestAccounts.recordActive(guestId);
+        assertEquals(0, guestAccounts.pending());
+    }
+
+    @Test
+    void skipsGuestsStoredElsewhere() {
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (RANDOM_UUID(), 'Guest_elsewhere', '', 2)");
+        guestAccounts.recordActive("Guest_elsewhere");
+        guestAccounts.flush();
+        assertEquals(1, rows("Guest_elsewhere"));
+    }
+
+    private int rows(String username) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE username = ?", Integer.class, username);
+    }
+}
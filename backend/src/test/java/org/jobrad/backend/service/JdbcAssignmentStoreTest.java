@@ -0,0 +1,193 @@
+package org.jobrad.backend.service;
+
+import org.jobrad.backend.entity.Conversation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Several stores on one database stand in for several nodes
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:assignmentdb",
+        "chat.assignment.store=jdbc"
+})
+class JdbcAssignmentStoreTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcAssignmentStore nodeA;
+    private JdbcAssignmentStore nodeB;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM active_assignment");
+        jdbcTemplate.update("DELETE FROM waiting_guest");
+        jdbcTemplate.update("DELETE FROM agent_slot");
+        nodeA = new JdbcAssignmentStore(jdbcTemplate, transactionManager);
+        nodeB = new JdbcAssignmentStore(jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    void servesGuestsInSortKeyOrderToTheLeastLoadedAgent() {
+        nodeA.registerAgent("agent1", 2);
+        nodeB.registerAgent("agent2", 2);
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(nodeA.enqueue("Guest_" + i, i));
+        }
+
+        Conversation first = nodeB.claimNext();
+        Conversation second = nodeA.claimNext();
+
+        assertEquals("Guest_1", first.getGuestId());
+        assertEquals("agent1", first.getAgentId());
+        assertEquals("Guest_2", second.getGuestId());
+        assertEquals("agent2", second.getAgentId());
+        assertEquals(first.getId(), nodeB.findByGuest("Guest_1").getId());
+        assertEquals(Set.of("Guest_2"), nodeA.guestsOf("agent2"));
+    }
+
+    @Test
+    void reportsPositionsAndKeepsTheSortKeyOfALeavingGuest() {
+        nodeA.registerAgent("agent1", 2);
+        nodeA.registerAgent("agent2", 3);
+        nodeA.enqueue("Guest_late", 30);
+        nodeB.enqueue("Guest_early", 10);
+        nodeA.enqueue("Guest_middle", 20);
+
+        assertEquals(List.of("Guest_early", "Guest_middle", "Guest_late"), nodeB.waitingGuests());
+        assertEquals(3, nodeB.positionOf("Guest_late"));
+        assertEquals(0, nodeB.positionOf("Guest_unknown"));
+        assertEquals(5, nodeB.capacity());
+
+        assertEquals(20L, nodeA.dequeue("Guest_middle"));
+        assertEquals(2, nodeB.positionOf("Guest_late"));
+    }
+
+    @Test
+    void registeringAgainKeepsTheAgentsSlotsAndPlace() {
+        nodeA.registerAgent("agent1", 2);
+        nodeA.registerAgent("agent2", 2);
+        nodeA.enqueue("Guest_1", 1);
+        assertEquals("agent1", nodeA.claimNext().getAgentId());
+
+        nodeB.registerAgent("agent1", 2);
+        nodeB.registerAgent("agent2", 2);
+
+        assertEquals(4, nodeA.capacity());
+        assertEquals(1, nodeA.activeCount());
+        // Ties on free slots go to the agent registered first
+        nodeA.release("agent1", "Guest_1");
+        nodeA.enqueue("Guest_2", 2);
+        assertEquals("agent1", nodeA.claimNext().getAgentId());
+    }
+
+    @Test
+    void unregisteredAgentKeepsItsBindingsButGetsNoNewGuests() {
+        nodeA.registerAgent("agent1", 2);
+        nodeA.enqueue("Guest_1", 1);
+        nodeA.enqueue("Guest_2", 2);
+        assertNotNull(nodeA.claimNext());
+
+        nodeB.unregisterAgent("agent1");
+
+        assertNull(nodeA.claimNext());
+        assertEquals(0, nodeA.capacity());
+        assertEquals(Set.of("Guest_1"), nodeA.guestsOf("agent1"));
+        assertNotNull(nodeA.release("agent1", "Guest_1"));
+        nodeA.registerAgent("agent1", 2);
+        assertEquals("Guest_2", nodeA.claimNext().getGuestId());
+    }
+
+    @Test
+    void assignedGuestIsNotQueuedAgain() {
+        nodeA.registerAgent("agent1", 1);
+        nodeA.enqueue("Guest_1", 1);
+        assertNotNull(nodeA.claimNext());
+
+        assertFalse(nodeB.enqueue("Guest_1", 1));
+        assertNull(nodeB.dequeue("Guest_1"));
+    }
+
+    @Test
+    void releaseEndsTheConversationOnceAndFreesTheSlot() {
+        nodeA.registerAgent("agent1", 1);
+        nodeA.enqueue("Guest_1", 1);
+        nodeA.enqueue("Guest_2", 2);
+        Conversation conversation = nodeA.claimNext();
+        assertNull(nodeA.claimNext());
+
+        Conversation ended = nodeB.release("agent1", "Guest_1");
+
+        assertEquals(conversation.getId(), ended.getId());
+        assertNotNull(ended.getEndedAt());
+        assertNull(nodeA.release("agent1", "Guest_1"));
+        assertEquals("Guest_2", nodeA.claimNext().getGuestId());
+    }
+
+    @Test
+    void concurrentClaimsFromTwoNodesNeverExceedCapacity() throws Exception {
+        int agents = 4;
+        int slots = 3;
+        for (int i = 1; i <= agents; i++) {
+            nodeA.registerAgent("agent" + i, slots);
+        }
+        for (int i = 1; i <= 40; i++) {
+            (i % 2 == 0 ? nodeA : nodeB).enqueue("Guest_" + i, i);
+        }
+        Map<String, String> claimed = new ConcurrentHashMap<>();
+        AtomicInteger duplicates = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 8; t++) {
+            JdbcAssignmentStore store = t % 2 == 0 ? nodeA : nodeB;
+            executor.submit(() -> {
+                start.await();
+                Conversation conversation;
+                while ((conversation = store.claimNext()) != null) {
+                    if (claimed.put(conversation.getGuestId(), conversation.getAgentId()) != null) {
+                        duplicates.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(0, duplicates.get());
+        // Claims that lost a race return null early; whatever is left is picked up by a later drain
+        Conversation conversation;
+        while ((conversation = nodeA.claimNext()) != null) {
+            claimed.put(conversation.getGuestId(), conversation.getAgentId());
+        }
+        assertEquals(agents * slots, claimed.size());
+        for (int i = 1; i <= agents; i++) {
+            assertEquals(slots, nodeB.guestsOf("agent" + i).size());
+        }
+        List<Integer> active = jdbcTemplate.queryForList("SELECT active FROM agent_slot", Integer.class);
+        assertTrue(active.stream().allMatch(count -> count == slots));
+    }
+}
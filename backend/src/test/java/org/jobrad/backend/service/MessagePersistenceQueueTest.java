@@ -0,0 +1,44 @@
+package org.jobrad.backend.service;
+
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.repository.MessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class MessagePersistenceQueueTest {
+
+    @Autowired
+    private MessagePersistenceQueue messagePersistenceQueue;
+
+    @Autowired
+    private MessageIdGenerator messageIdGenerator;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Test
+    void flushesBufferedMessagesInBatches() {
+        long before = messageRepository.count();
+        IntStream.range(0, 250).parallel().forEach(i -> messagePersistenceQueue.enqueue(Message.builder()
+                .id(messageIdGenerator.nextId())
+                .sender("Guest_" + i)
+                .recipient("agent1")
+                .senderType(UserRole.CUSTOMER)
+                .content("hello " + i)
+                .timestamp(LocalDateTime.now())
+                .build()));
+
+        messagePersistenceQueue.awaitFlushed(5_000);
+
+        assertEquals(before + 250, messageRepository.count());
+        assertEquals(0, messagePersistenceQueue.pending());
+    }
+}
@@ -0,0 +1,111 @@
+package org.jobrad.backend.service;
+
+import org.jobrad.backend.dto.MessageCursor;
+import org.jobrad.backend.dto.MessagePageResponse;
+import org.jobrad.backend.dto.MessageResponse;
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class MessageServiceImplTest {
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private MessageIdGenerator messageIdGenerator;
+
+    @Test
+    void pagesBackwardsThroughHistoryAndReturnsOnlyNewMessagesAfterCursor() {
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        for (int i = 0; i < 7; i++) {
+            boolean fromGuest = i % 2 == 0;
+            save(fromGuest ? "Guest_paging" : "agent_paging", fromGuest ? "agent_paging" : "Guest_paging",
+                    "message " + i, start.plusSeconds(i));
+        }
+        // Unrelated traffic must not leak into the page
+        save("Guest_other", "agent_other", "noise", start.plusSeconds(3));
+
+        MessagePageResponse latest = messageService.getMessagesForUser("Guest_paging", null, null, 3);
+        assertEquals(List.of("message 4", "message 5", "message 6"), contents(latest));
+        assertTrue(latest.isHasMore());
+
+        List<String> older = new ArrayList<>();
+        MessagePageResponse page = latest;
+        while (page.isHasMore()) {
+            page = messageService.getMessagesForUser("Guest_paging", null, MessageCursor.decode(page.getBeforeCursor()), 3);
+            older.addAll(0, contents(page));
+        }
+        assertEquals(List.of("message 0", "message 1", "message 2", "message 3"), older);
+
+        MessageCursor lastSeen = MessageCursor.decode(latest.getAfterCursor());
+        assertTrue(messageService.getMessagesForUser("Guest_paging", lastSeen, null, 3).getMessages().isEmpty());
+
+        save("agent_paging", "Guest_paging", "message 7", start.plusSeconds(7));
+        MessagePageResponse delta = messageService.getMessagesForUser("Guest_paging", lastSeen, null, 3);
+        assertEquals(List.of("message 7"), contents(delta));
+        assertFalse(delta.isHasMore());
+        // The whole history fits the cache window, so every read after the first was a hit
+        assertTrue(messageService.getCacheStats().getHits() > 0);
+    }
+
+    @Test
+    void readsConversationHistoryByConversationId() {
+        UUID conversationId = UUID.randomUUID();
+        LocalDateTime start = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            save("Guest_conversation", "agent_conversation", "message " + i, start.plusSeconds(i), conversationId);
+        }
+        save("Guest_conversation", "agent_conversation", "earlier chat", start, UUID.randomUUID());
+
+        MessagePageResponse latest = messageService.getMessagesForConversation(conversationId, null, null, 3);
+        assertEquals(List.of("message 2", "message 3", "message 4"), contents(latest));
+        assertTrue(latest.isHasMore());
+
+        MessagePageResponse older = messageService.getMessagesForConversation(conversationId, null,
+                MessageCursor.decode(latest.getBeforeCursor()), 3);
+        assertEquals(List.of("message 0", "message 1"), contents(older));
+        assertFalse(older.isHasMore());
+    }
+
+    @Test
+    void storesMessagesUpToTheIngressLimit() {
+        UUID conversationId = UUID.randomUUID();
+        String longest = "x".repeat(4000);
+        save("Guest_long", "agent_long", longest, LocalDateTime.now(), conversationId);
+
+        assertEquals(List.of(longest), contents(messageService.getMessagesForConversation(conversationId, null, null, 1)));
+    }
+
+    private void save(String sender, String recipient, String content, LocalDateTime timestamp) {
+        save(sender, recipient, content, timestamp, null);
+    }
+
+    private void save(String sender, String recipient, String content, LocalDateTime timestamp, UUID conversationId) {
+        messageService.persistMessage(Message.builder()
+                .id(messageIdGenerator.nextId())
+                .sender(sender)
+                .recipient(recipient)
+                .senderType(sender.startsWith("Guest_") ? UserRole.CUSTOMER : UserRole.SUPPORT_AGENT)
+                .content(content)
+                .timestamp(timestamp)
+                .conversationId(conversationId)
+                .build());
+    }
+
+    private static List<String> contents(MessagePageResponse page) {
+        return page.getMessages().stream().map(MessageResponse::getContent).toList();
+    }
+}
@@ -0,0 +1,62 @@
+package org.jobrad.backend.service;
+
+import org.jobrad.backend.entity.Message;
+import org.jobrad.backend.entity.UserRole;
+import org.jobrad.backend.repository.MessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:guestdb",
+        "chat.guests.flush-interval=1h",
+        "chat.guests.purge-interval=1h"
+})
+class StaleGuestPurgerTest {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageIdGenerator messageIdGenerator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void purgesAnonymousGuestsThatNeverWrote() {
+        for (int i = 0; i < 5; i++) {
+            insertUser("Guest_stale" + i, "");
+        }
+        insertUser("Guest_wrote", "");
+        insertUser("Guest_password", "{noop}secret");
+        insertUser("GuestBook", "");
+        messageRepository.save(Message.builder()
+                .id(messageIdGenerator.nextId())
+                .sender("Guest_wrote")
+                .recipient("agent1")
+                .senderType(UserRole.CUSTOMER)
+                .content("hello")
+                .timestamp(LocalDateTime.now())
+                .build());
+
+        // Small batches, so the purge takes several
+        StaleGuestPurger purger = new StaleGuestPurger(2);
+        ReflectionTestUtils.setField(purger, "jdbcTemplate", jdbcTemplate);
+        purger.purge();
+
+        assertEquals(List.of("GuestBook", "Guest_password", "Guest_wrote"), jdbcTemplate.queryForList(
+                "SELECT username FROM users WHERE username LIKE 'Guest%' ORDER BY username", String.class));
+    }
+
+    private void insertUser(String username, String password) {
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (RANDOM_UUID(), ?, ?, 2)", username, password);
+    }
+}
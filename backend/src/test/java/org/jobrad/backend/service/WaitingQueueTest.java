@@ -0,0 +1,65 @@
+package org.jobrad.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WaitingQueueTest {
+
+    private final WaitingQueue queue = new WaitingQueue();
+
+    @Test
+    void ordersBySortKeyThenArrival() {
+        assertTrue(queue.offer("Guest_b", 20));
+        assertTrue(queue.offer("Guest_a", 10));
+        assertTrue(queue.offer("Guest_c", 20));
+        assertFalse(queue.offer("Guest_a", 5));
+
+        assertEquals(List.of("Guest_a", "Guest_b", "Guest_c"), queue.snapshot());
+        assertEquals(3, queue.positionOf("Guest_c"));
+        assertEquals(0, queue.positionOf("Guest_x"));
+
+        assertEquals(10L, queue.remove("Guest_a"));
+        assertNull(queue.remove("Guest_a"));
+        assertEquals(2, queue.positionOf("Guest_c"));
+        assertEquals("Guest_b", queue.poll());
+        assertEquals("Guest_c", queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void positionsStayConsistentThroughRandomOffersAndRemovals() {
+        Random random = new Random(42);
+        List<long[]> expected = new ArrayList<>();
+        long arrival = 0;
+        for (int i = 0; i < 20_000; i++) {
+            int op = random.nextInt(4);
+            if (op < 2 || expected.isEmpty()) {
+                long sortKey = random.nextInt(1_000);
+                queue.offer("Guest_" + i, sortKey);
+                expected.add(new long[]{sortKey, arrival++, i});
+            } else if (op == 2) {
+                long[] removed = expected.remove(random.nextInt(expected.size()));
+                assertEquals(removed[0], queue.remove("Guest_" + removed[2]));
+            } else {
+                expected.sort(Comparator.<long[]>comparingLong(e -> e[0]).thenComparingLong(e -> e[1]));
+                long[] head = expected.remove(0);
+                assertEquals("Guest_" + head[2], queue.poll());
+            }
+        }
+        expected.sort(Comparator.<long[]>comparingLong(e -> e[0]).thenComparingLong(e -> e[1]));
+        assertEquals(expected.size(), queue.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i + 1, queue.positionOf("Guest_" + expected.get(i)[2]));
+        }
+    }
+}
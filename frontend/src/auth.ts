@@ -0,0 +1,57 @@
+import axios, { type AxiosError, type InternalAxiosRequestConfig } from 'axios';
+
+const REFRESH_URL = 'http://localhost:8080/api/auth/refresh';
+
+export interface Tokens {
+    accessToken: string;
+    refreshToken: string;
+}
+
+let username = '';
+let accessToken: string | null = null;
+let refreshToken: string | null = null;
+let refreshing: Promise<void> | null = null;
+
+// Sends the access token with every request; the refresh token renews it once it expires
+export const setTokens = (user: string, tokens: Tokens) => {
+    username = user;
+    accessToken = tokens.accessToken;
+    refreshToken = tokens.refreshToken;
+    axios.defaults.headers.common.Authorization = `Bearer ${tokens.accessToken}`;
+};
+
+export const clearTokens = () => {
+    username = '';
+    accessToken = null;
+    refreshToken = null;
+    delete axios.defaults.headers.common.Authorization;
+};
+
+export const currentUser = () => username;
+
+// Browsers cannot set headers on WebSocket or SockJS requests, so the handshake carries the token in the URL
+export const withAccessToken = (url: string) => `${url}?access_token=${encodeURIComponent(accessToken ?? '')}`;
+
+// On a 401 renew the tokens once and repeat the request; concurrent failures share one refresh
+axios.interceptors.response.use(undefined, async (error: AxiosError) => {
+    const config = error.config as (InternalAxiosRequestConfig & { retried?: boolean }) | undefined;
+    if (error.response?.status !== 401 || !config || config.retried || !refreshToken || config.url === REFRESH_URL) {
+        throw error;
+    }
+    if (!refreshing) {
+        refreshing = axios.post(REFRESH_URL, { refreshToken })
+            .then(response => setTokens(response.data.username, response.data))
+            .finally(() => {
+                refreshing = null;
+            });
+    }
+    try {
+        await refreshing;
+    } catch {
+        clearTokens();
+        throw error;
+    }
+    config.retried = true;
+    config.headers.Authorization = axios.defaults.headers.common.Authorization as string;
+    return axios(config);
+});
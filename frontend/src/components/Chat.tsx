@@ -2,7 +2,8 @@ import React, { useState, useEffect, useRef } from 'react';
 import axios from 'axios';
 import SockJS from 'sockjs-client';
 import { Client } from '@stomp/stompjs';
-import type {Message} from '../types';
+import type {Message, MessagePage} from '../types';
+import { clearTokens, currentUser, setTokens, withAccessToken } from '../auth';
 
 interface ChatProps {
     userType: 'GUEST' | 'SUPPORT_AGENT';
@@ -19,6 +20,7 @@ const Chat: React.FC<ChatProps> = ({ userType, setUserType }) => {
     const [retryCount, setRetryCount] = useState(0);
     const maxRetries = 5;
     const messagesEndRef = useRef<HTMLDivElement>(null);
+    const afterCursorRef = useRef<string | null>(null);
 
     // Initialize user and set recipient
     useEffect(() => {
@@ -31,6 +33,7 @@ const Chat: React.FC<ChatProps> = ({ userType, setUserType }) => {
                         setError('Failed to initialize chat: Invalid guest ID');
                         return;
                     }
+                    setTokens(guestId, response.data);
                     setUserId(guestId);
                     setRecipientId(agentId || '');
                     fetchMessages(guestId);
@@ -38,6 +41,11 @@ const Chat: React.FC<ChatProps> = ({ userType, setUserType }) => {
                 .catch(err => {
                     console.error('Chat.tsx: Error creating anonymous user:', err);
                     if (err.response?.status === 503) {
+                        // Queued: connect anyway to hear when an agent takes the chat
+                        if (err.response.data?.guestId) {
+                            setTokens(err.response.data.guestId, err.response.data);
+                            setUserId(err.response.data.guestId);
+                        }
                         setError('No agents available. Waiting for an agent....');
                     } else if (err.response?.status === 401) {
                         setError('Unauthorized access to anonymous endpoint.');
@@ -46,7 +54,7 @@ const Chat: React.FC<ChatProps> = ({ userType, setUserType }) => {
                     }
                 });
         } else {
-            const username = axios.defaults.auth?.username || 'agent1';
+            const username = currentUser() || 'agent1';
             setUserId(username);
             axios.get(`http://localhost:8080/api/assignment/${username}`, { withCredentials: true })
                 .then(response => {
@@ -60,11 +68,25 @@ const Chat: React.FC<ChatProps> = ({ userType, setUserType }) => {
         }
     }, [userType]);
 
-    // Fetch message history
+    // Fetch the latest page of history, then only what arrived since the last fetch
     const fetchMessages = (userId: string) => {
-        axios.get(`http://localhost:8080/api/messages?userId=${userId}`, { withCredentials: true })
+        const after = afterCursorRef.current;
+        axios.get('http://localhost:8080/api/messages', {
+            params: after ? { userId, after } : { userId },
+            withCredentials: true,
+        })
             .then(response => {
-                setMessages(response.data);
+                const page: MessagePage = response.data;
+                if (page.afterCursor) {
+                    afterCursorRef.current = page.afterCursor;
+                }
+                setMessages((prev) => {
+                    if (!after) {
+                        return page.messages;
+                    }
+                    const seen = new Set(prev.map((msg) => msg.id));
+                    return [...prev, ...page.messages.filter((msg) => !seen.has(msg.id))];
+                });
             })
             .catch(error => {
                 console.error('Chat.tsx: Error fetching messages:', error);
@@ -80,7 +102,7 @@ const Chat: React.FC<ChatProps> = ({ userType, setUserType }) => {
     useEffect(() => {
         if (!userId || retryCount >= maxRetries) return;
 
-        const socket = new SockJS('http://localhost:8080/chat');
+        const socket = new SockJS(withAccessToken('http://localhost:8080/chat'));
         const client = new Client({
             webSocketFactory: () => socket,
             reconnectDelay: 3000 * retryCount,
@@ -108,6 +130,9 @@ const Chat: React.FC<ChatProps> = ({ userType, setUserType }) => {
                         if (assignment.agentId) {
                             setError('');
                             fetchMessages(userId);
+                        } else if (assignment.queuePosition) {
+                            const minutes = Math.max(1, Math.ceil(assignment.estimatedWaitSeconds / 60));
+                            setError(`You are number ${assignment.queuePosition} in the queue. Estimated wait: about ${minutes} min.`);
                         } else {
                             setError('No agents available. Waiting for an agent...');
 
@@ -222,7 +247,8 @@ const Chat: React.FC<ChatProps> = ({ userType, setUserType }) => {
                 .catch(err => {
                     console.error('Chat.tsx: Error freeing agent:', err);
                     setError('Failed to free agent: ' + (err.response?.data || err.message));
-                });
+                })
+                .finally(clearTokens);
         } else {
             axios.post(`http://localhost:8080/api/assignment/guest/${userId}`, {}, { withCredentials: true })
                 .then(() => {
@@ -231,7 +257,8 @@ const Chat: React.FC<ChatProps> = ({ userType, setUserType }) => {
                 .catch(err => {
                     console.error('Chat.tsx: Error freeing agent:', err);
                     setError('Failed to free agent: ' + (err.response?.data || err.message));
-                });
+                })
+                .finally(clearTokens);
         }
         setUserType(null);
     };
@@ -1,5 +1,6 @@
 import React, {useState} from 'react';
 import axios from 'axios';
+import { setTokens } from '../auth';
 
 interface LoginProps {
     setUserType: (type: 'GUEST' | 'SUPPORT_AGENT' | null) => void;
@@ -19,9 +20,10 @@ const Login: React.FC<LoginProps> = ({setUserType}) => {
                 {},
                 {
                     auth: {username, password},
-                    withCredentials: true, // Ensure credentials are sent
                 }
             );
+            // Only the login sends the password; later requests carry the token
+            setTokens(response.data.username, response.data);
             setUserType('SUPPORT_AGENT');
             setError('');
         } catch (err) {
@@ -1,8 +1,16 @@
 export interface Message {
-    id?: number;
+    // Snowflake ids exceed Number.MAX_SAFE_INTEGER, so the server sends them as strings
+    id?: string;
     sender: string;
     recipient: string;
     content: string;
     senderType: 'GUEST' | 'SUPPORT_AGENT';
     timestamp: string;
+}
+
+export interface MessagePage {
+    messages: Message[];
+    beforeCursor: string | null;
+    afterCursor: string | null;
+    hasMore: boolean;
 }
\ No newline at end of file